@@ -0,0 +1,33 @@
+
+
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+group = "io.github.heathensoft"
+version = "SNAPSHOT"
+
+
+repositories {
+    mavenCentral()
+}
+
+val lwjglVersion = "3.3.4"
+val jomlVersion = "1.10.7"
+
+dependencies {
+    implementation(project(":chapter05"))
+    // chapter05 keeps these as implementation dependencies (natives arrive through its runtime classpath)
+    implementation(platform("org.lwjgl:lwjgl-bom:$lwjglVersion"))
+    implementation("org.lwjgl", "lwjgl")
+    implementation("org.lwjgl", "lwjgl-glfw")
+    implementation("org.lwjgl", "lwjgl-opengl")
+    implementation("org.joml", "joml", jomlVersion)
+}
+
+jmh {
+    jmhVersion = "1.37"
+    // ./gradlew :benchmarks:jmh -Pjmh.includes=FrameHandoff
+    project.findProperty("jmh.includes")?.let { includes = listOf(it.toString()) }
+}
@@ -0,0 +1,106 @@
+package io.github.heathensoft.guide.benchmarks;
+
+import io.github.heathensoft.guide.core.ComputeProgram;
+import io.github.heathensoft.guide.core.HeadlessContext;
+import io.github.heathensoft.guide.core.ShaderProgram;
+import io.github.heathensoft.guide.core.StorageBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.opengl.GL11.glFinish;
+
+/**
+ * Saxpy over storage buffers: compute shader against the same loop in java
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ComputeBenchmark {
+
+    static final String COMP_SOURCE = """
+            #version 440 core
+            layout(local_size_x = 256) in;
+            layout(std430) readonly buffer X { float x[]; };
+            layout(std430) buffer Y { float y[]; };
+            uniform float u_a;
+            uniform uint u_count;
+            void main() {
+                uint i = gl_GlobalInvocationID.x;
+                if (i < u_count) y[i] = u_a * x[i] + y[i];
+            }""";
+
+    static final float A = 2.0f;
+
+    @Param({"4096", "1048576"})
+    public int count;
+
+    HeadlessContext context;
+    ComputeProgram program;
+    StorageBuffer x_buffer;
+    StorageBuffer y_buffer;
+    float[] x;
+    float[] y;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = new HeadlessContext();
+        program = ComputeProgram.create("saxpy",COMP_SOURCE);
+        program.set("u_a",A);
+        program.setU("u_count",count);
+        x = new float[count];
+        y = new float[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = i;
+            y[i] = 1.0f;
+        } x_buffer = new StorageBuffer("X",count * Float.BYTES);
+        y_buffer = new StorageBuffer("Y",count * Float.BYTES);
+        x_buffer.begin().putFloatArray(x,0,count);
+        x_buffer.end();
+        y_buffer.begin().putFloatArray(y,0,count);
+        y_buffer.end();
+        x_buffer.bind();
+        y_buffer.bind();
+        program.dispatchItems(count);
+        ComputeProgram.barrierBufferUpdate();
+        ByteBuffer bytes = ByteBuffer.allocateDirect(count * Float.BYTES).order(ByteOrder.nativeOrder());
+        y_buffer.read(0,bytes);
+        FloatBuffer result = bytes.asFloatBuffer();
+        for (int i = 0; i < count; i++) {
+            float expected = A * x[i] + y[i];
+            if (result.get(i) != expected) {
+                throw new IllegalStateException("saxpy: y[" + i + "] = " + result.get(i) + ", expected " + expected);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        x_buffer.dispose();
+        y_buffer.dispose();
+        ShaderProgram.deleteAllPrograms();
+        context.dispose();
+    }
+
+    @Benchmark
+    public void gpu() {
+        program.dispatchItems(count);
+        ComputeProgram.barrierStorage();
+        glFinish();
+    }
+
+    @Benchmark
+    public float[] cpu() {
+        float[] x = this.x;
+        float[] y = this.y;
+        for (int i = 0; i < x.length; i++) {
+            y[i] = A * x[i] + y[i];
+        } return y;
+    }
+}
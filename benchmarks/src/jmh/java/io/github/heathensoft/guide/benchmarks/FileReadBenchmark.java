@@ -0,0 +1,76 @@
+package io.github.heathensoft.guide.benchmarks;
+
+import io.github.heathensoft.guide.utils.ExternalFile;
+import io.github.heathensoft.guide.utils.Resources;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reading a file into a direct buffer
+ */
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class FileReadBenchmark {
+
+    static final String RESOURCE = "benchmark-file.bin";
+
+    @Param({"1024", "65536", "1048576", "16777216", "104857600"})
+    public int file_size;
+
+    Path directory;
+    ExternalFile file;
+    ClassLoader context_class_loader;
+    URLClassLoader class_loader;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("benchmark");
+        Path path = directory.resolve(RESOURCE);
+        byte[] bytes = new byte[file_size];
+        new Random(42).nextBytes(bytes);
+        Files.write(path,bytes);
+        file = new ExternalFile(path);
+        context_class_loader = Thread.currentThread().getContextClassLoader();
+        class_loader = new URLClassLoader(new URL[] { directory.toUri().toURL() }, context_class_loader);
+        Thread.currentThread().setContextClassLoader(class_loader);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Thread.currentThread().setContextClassLoader(context_class_loader);
+        class_loader.close();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer resource() throws Exception {
+        return Resources.readToBuffer(RESOURCE,file_size);
+    }
+
+    @Benchmark
+    public ByteBuffer resourceGrowing() throws Exception {
+        return Resources.readToBuffer(RESOURCE,4096);
+    }
+
+    @Benchmark
+    public ByteBuffer externalFile() throws Exception {
+        return file.readToBuffer();
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.heathensoft.guide.benchmarks;
+
+import io.github.heathensoft.guide.core.FrameExchange;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Frame hand-off latency and cost between the update and render threads
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FrameHandoffBenchmark {
+
+    public static final class Frame {
+        long sequence;
+        long input_nanos;
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pipeline {
+
+        @Param({"0", "1000000", "4000000"})
+        public long render_nanos;
+
+        FrameExchange<Frame> exchange;
+        volatile long presented_sequence;
+        volatile boolean running;
+        long sequence;
+        Thread render_thread;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            exchange = new FrameExchange<>(Frame::new);
+            running = true;
+            render_thread = new Thread(this::renderLoop,"render-thread");
+            render_thread.setDaemon(true);
+            render_thread.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            running = false;
+            render_thread.join();
+        }
+
+        private void renderLoop() {
+            while (running) {
+                Frame frame = exchange.acquire();
+                long frame_end = nanoTime() + render_nanos;
+                while (nanoTime() < frame_end) Thread.onSpinWait(); // render + swap
+                if (frame.sequence > presented_sequence) {
+                    presented_sequence = frame.sequence;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long inputToPresent(Pipeline pipeline) {
+        long sequence = ++pipeline.sequence;
+        Frame frame = pipeline.exchange.writable();
+        frame.sequence = sequence;
+        frame.input_nanos = nanoTime();
+        pipeline.exchange.publish();
+        while (pipeline.presented_sequence < sequence) {
+            Thread.onSpinWait();
+        } return sequence;
+    }
+
+    @State(Scope.Group)
+    public static class Exchange {
+        FrameExchange<Frame> exchange;
+        long sequence;
+
+        @Setup(Level.Iteration)
+        public void setup() { exchange = new FrameExchange<>(Frame::new); }
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void publish(Exchange state) {
+        Frame frame = state.exchange.writable();
+        frame.sequence = ++state.sequence;
+        frame.input_nanos = nanoTime();
+        state.exchange.publish();
+    }
+
+    @Benchmark
+    @Group("handoff")
+    @GroupThreads(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public long acquire(Exchange state) {
+        return state.exchange.acquire().sequence;
+    }
+}
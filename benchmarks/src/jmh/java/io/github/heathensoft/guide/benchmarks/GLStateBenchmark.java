@@ -0,0 +1,71 @@
+package io.github.heathensoft.guide.benchmarks;
+
+import io.github.heathensoft.guide.core.GLState;
+import io.github.heathensoft.guide.core.HeadlessContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Draw state set through GLState: redundant, alternating and direct
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class GLStateBenchmark {
+
+    HeadlessContext context;
+    int[] vertex_arrays;
+    int[] buffers;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = new HeadlessContext();
+        vertex_arrays = new int[] { glGenVertexArrays(), glGenVertexArrays() };
+        buffers = new int[] { glGenBuffers(), glGenBuffers() };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < 2; i++) {
+            GLState.deleteVertexArray(vertex_arrays[i]);
+            GLState.deleteBuffer(buffers[i]);
+        } context.dispose();
+    }
+
+    @Benchmark
+    public void redundant() {
+        setState(0);
+    }
+
+    @Benchmark
+    public void alternating() {
+        setState(next);
+        next ^= 1;
+    }
+
+    @Benchmark
+    public void direct() {
+        glBindVertexArray(vertex_arrays[0]);
+        glBindBuffer(GL_ARRAY_BUFFER,buffers[0]);
+        glEnable(GL_BLEND);
+        glBlendFuncSeparate(GL_SRC_ALPHA,GL_ONE_MINUS_SRC_ALPHA,GL_SRC_ALPHA,GL_ONE_MINUS_SRC_ALPHA);
+        glDisable(GL_DEPTH_TEST);
+        glDepthMask(false);
+    }
+
+    private void setState(int i) {
+        GLState.bindVertexArray(vertex_arrays[i]);
+        GLState.bindBuffer(GL_ARRAY_BUFFER,buffers[i]);
+        GLState.setCapability(GL_BLEND,i == 0);
+        GLState.blendFunc(GL_SRC_ALPHA,i == 0 ? GL_ONE_MINUS_SRC_ALPHA : GL_ONE);
+        GLState.setCapability(GL_DEPTH_TEST,i != 0);
+        GLState.depthMask(i != 0);
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.heathensoft.guide.benchmarks;
+
+import io.github.heathensoft.guide.core.Job;
+import io.github.heathensoft.guide.core.JobGraph;
+import io.github.heathensoft.guide.core.JobSystem;
+import io.github.heathensoft.guide.core.ParallelFor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JobSystem scheduling overhead against a ForkJoinPool
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class JobSystemBenchmark {
+
+    private static final int JOBS = 1024;
+    private static final int ELEMENTS = 1 << 20;
+
+    @Param({"256", "4096"})
+    public int grain;
+
+    private JobSystem job_system;
+    private JobGraph empty_jobs;
+    private ParallelFor parallel_for;
+
+    private ForkJoinPool fork_join_pool;
+    private ForkJoinBatch fork_join_batch;
+    private ForkJoinLoop fork_join_loop;
+
+    private float[] data;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        data = new float[ELEMENTS];
+        // The job system is owned by the thread creating it. JMH runs setup on the benchmark thread
+        job_system = new JobSystem(workers);
+        empty_jobs = new JobGraph();
+        for (int i = 0; i < JOBS; i++) {
+            empty_jobs.add(new Job(() -> Blackhole.consumeCPU(0)));
+        } parallel_for = new ParallelFor(job_system, this::scale);
+        // same parallelism: workers + the thread waiting (which helps in both cases)
+        fork_join_pool = new ForkJoinPool(workers + 1);
+        fork_join_batch = new ForkJoinBatch(JOBS);
+        fork_join_loop = new ForkJoinLoop(this);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        job_system.dispose();
+        fork_join_pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JOBS)
+    public void emptyJobsJobSystem() {
+        empty_jobs.run(job_system);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JOBS)
+    public void emptyJobsForkJoin() {
+        fork_join_batch.reinitialize();
+        fork_join_pool.invoke(fork_join_batch);
+    }
+
+    @Benchmark
+    public float parallelForJobSystem() {
+        job_system.run(parallel_for.range(ELEMENTS, grain));
+        return data[ELEMENTS - 1];
+    }
+
+    @Benchmark
+    public float parallelForForkJoin() {
+        fork_join_loop.reinitialize();
+        fork_join_pool.invoke(fork_join_loop);
+        return data[ELEMENTS - 1];
+    }
+
+    private void scale(int from, int to) {
+        float[] array = data;
+        for (int i = from; i < to; i++) array[i] = array[i] * 0.5f + 1.0f;
+    }
+
+    /** forks JOBS preallocated empty tasks and joins them */
+    @SuppressWarnings("serial") // never serialized
+    private static final class ForkJoinBatch extends RecursiveAction {
+        private final EmptyTask[] tasks;
+        ForkJoinBatch(int count) {
+            tasks = new EmptyTask[count];
+            for (int i = 0; i < count; i++) tasks[i] = new EmptyTask();
+        }
+        protected void compute() {
+            for (EmptyTask task : tasks) {
+                task.reinitialize();
+                task.fork();
+            } for (EmptyTask task : tasks) task.join();
+        }
+    }
+
+    @SuppressWarnings("serial") // never serialized
+    private static final class EmptyTask extends RecursiveAction {
+        protected void compute() { Blackhole.consumeCPU(0); }
+    }
+
+    /** same chunking as ParallelFor: forks one preallocated task per chunk */
+    @SuppressWarnings("serial") // never serialized
+    private static final class ForkJoinLoop extends RecursiveAction {
+        private final Chunk[] chunks;
+        ForkJoinLoop(JobSystemBenchmark benchmark) {
+            int count = (ELEMENTS + benchmark.grain - 1) / benchmark.grain;
+            chunks = new Chunk[count];
+            for (int i = 0; i < count; i++) {
+                int from = i * benchmark.grain;
+                chunks[i] = new Chunk(benchmark, from, Math.min(from + benchmark.grain, ELEMENTS));
+            }
+        }
+        protected void compute() {
+            for (int i = 1; i < chunks.length; i++) {
+                chunks[i].reinitialize();
+                chunks[i].fork();
+            } chunks[0].reinitialize();
+            chunks[0].invoke();
+            for (int i = chunks.length - 1; i > 0; i--) chunks[i].join();
+        }
+    }
+
+    @SuppressWarnings("serial") // never serialized
+    private static final class Chunk extends RecursiveAction {
+        private final JobSystemBenchmark benchmark;
+        private final int from, to;
+        Chunk(JobSystemBenchmark benchmark, int from, int to) {
+            this.benchmark = benchmark;
+            this.from = from;
+            this.to = to;
+        }
+        protected void compute() { benchmark.scale(from, to); }
+    }
+}
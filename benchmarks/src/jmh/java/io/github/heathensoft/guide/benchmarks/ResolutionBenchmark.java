@@ -0,0 +1,54 @@
+package io.github.heathensoft.guide.benchmarks;
+
+import io.github.heathensoft.guide.core.Resolution;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution.sortByClosest
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ResolutionBenchmark {
+
+    @Param({"1920x1080", "1000x700"})
+    public String desired;
+
+    Resolution desired_resolution;
+    Resolution[] shuffled;
+    List<Resolution> options;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String[] split = desired.split("x");
+        desired_resolution = new Resolution(Integer.parseInt(split[0]),Integer.parseInt(split[1]));
+        List<Resolution> resolutions = new ArrayList<>(List.of(
+                Resolution.R_800x600, Resolution.R_1024x768, Resolution.R_1152x864,
+                Resolution.R_1176_664, Resolution.R_1280x720, Resolution.R_1280x768,
+                Resolution.R_1280x800, Resolution.R_1280x960, Resolution.R_1280x1024,
+                Resolution.R_1360x768, Resolution.R_1366x768, Resolution.R_1536x864,
+                Resolution.R_1600x900, Resolution.R_1600x1024, Resolution.R_1920x1080,
+                Resolution.R_1920x1200, Resolution.R_2560x1440, Resolution.R_3440x1440,
+                Resolution.R_3840x2160));
+        Collections.shuffle(resolutions,new Random(42));
+        shuffled = resolutions.toArray(new Resolution[0]);
+        options = new ArrayList<>(shuffled.length);
+    }
+
+    @Benchmark
+    public Resolution sortByClosest() {
+        options.clear();
+        Collections.addAll(options,shuffled);
+        Resolution.sortByClosest(desired_resolution,options);
+        return options.getFirst();
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.heathensoft.guide.benchmarks;
+
+import io.github.heathensoft.guide.core.HeadlessContext;
+import io.github.heathensoft.guide.core.Shader;
+import io.github.heathensoft.guide.core.ShaderProgram;
+import io.github.heathensoft.guide.core.Uniform;
+import org.joml.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShaderProgram.setUniform overloads: uniform cache misses (a new value every call) and hits (*Hit)
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class UniformBenchmark {
+
+    static final int ARRAY_LENGTH = 16;
+
+    static final String VERT_SOURCE = """
+            #version 440 core
+            uniform int u_int;
+            uniform ivec4 u_ivec4;
+            uniform float u_float;
+            uniform vec2 u_vec2;
+            uniform vec3 u_vec3;
+            uniform vec4 u_vec4;
+            uniform mat3 u_mat3;
+            uniform mat4 u_mat4;
+            uniform float u_floats[16];
+            uniform vec4 u_vec4s[16];
+            uniform mat4 u_mat4s[16];
+            void main() {
+                int i = gl_VertexID & 15;
+                vec4 v = u_vec4 + vec4(u_vec3,u_float) + vec4(u_vec2,float(u_int),float(u_ivec4.x + u_ivec4.w));
+                v += vec4(u_mat3 * v.xyz, u_floats[i]) + u_vec4s[i];
+                gl_Position = u_mat4 * u_mat4s[i] * v;
+            }""";
+
+    static final String FRAG_SOURCE = """
+            #version 440 core
+            layout(location = 0) out vec4 f_color;
+            void main() { f_color = vec4(1.0); }""";
+
+    HeadlessContext context;
+    ShaderProgram program;
+    Vector3f vec3 = new Vector3f(1,2,3);
+    Vector4f vec4 = new Vector4f(1,2,3,4);
+    Vector4i ivec4 = new Vector4i(1,2,3,4);
+    Matrix3f mat3 = new Matrix3f().rotateZ(0.5f);
+    Matrix4f mat4 = new Matrix4f().perspective(1.2f,16/9f,0.1f,100f);
+    float[] floats = new float[ARRAY_LENGTH];
+    Vector4f[] vec4s = new Vector4f[ARRAY_LENGTH];
+    Matrix4f[] mat4s = new Matrix4f[ARRAY_LENGTH];
+    Uniform.Float u_float;
+    Uniform.Vec4 u_vec4;
+    Uniform.Mat4 u_mat4;
+    Uniform.FloatArray u_floats;
+    Uniform.Mat4Array u_mat4s;
+    Matrix4f mat4_hit = new Matrix4f().perspective(1.2f,16/9f,0.1f,100f);
+    float[] floats_hit = new float[ARRAY_LENGTH];
+    float f;
+    int i;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = new HeadlessContext();
+        Shader vert = new Shader(VERT_SOURCE, Shader.Type.VERT_SHADER);
+        Shader frag = new Shader(FRAG_SOURCE, Shader.Type.FRAG_SHADER);
+        program = new ShaderProgram("uniform_benchmark",vert,frag);
+        ShaderProgram.useProgram(program);
+        u_float = new Uniform.Float(program,"u_float");
+        u_vec4 = new Uniform.Vec4(program,"u_vec4");
+        u_mat4 = new Uniform.Mat4(program,"u_mat4");
+        u_floats = new Uniform.FloatArray(program,"u_floats");
+        u_mat4s = new Uniform.Mat4Array(program,"u_mat4s");
+        for (int i = 0; i < ARRAY_LENGTH; i++) {
+            floats[i] = i;
+            vec4s[i] = new Vector4f(i);
+            mat4s[i] = new Matrix4f().translate(i,0,0);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ShaderProgram.deleteAllPrograms();
+        context.dispose();
+    }
+
+    // Every benchmark writes a new value (a cache miss), except the *Hit benchmarks (skipped after the first call)
+    @Benchmark
+    public void setInt() { ShaderProgram.setUniform("u_int",++i); }
+
+    @Benchmark
+    public void setFloat() { ShaderProgram.setUniform("u_float",f += 0.001f); }
+
+    @Benchmark
+    public void setFloat2() { ShaderProgram.setUniform("u_vec2",f += 0.001f,f); }
+
+    @Benchmark
+    public void setFloat4() { ShaderProgram.setUniform("u_vec4",f += 0.001f,f,f,f); }
+
+    @Benchmark
+    public void setFloat3() { ShaderProgram.setUniform("u_vec3",f += 0.001f,f,f); }
+
+    @Benchmark
+    public void setVector3f() { ShaderProgram.setUniform("u_vec3",vec3.add(0.001f,0,0)); }
+
+    @Benchmark
+    public void setVector4f() { ShaderProgram.setUniform("u_vec4",vec4.add(0.001f,0,0,0)); }
+
+    @Benchmark
+    public void setVector4i() { ShaderProgram.setUniform("u_ivec4",ivec4.add(1,0,0,0)); }
+
+    @Benchmark
+    public void setMatrix3f() { ShaderProgram.setUniform("u_mat3",mat3.m20(mat3.m20() + 0.001f)); }
+
+    @Benchmark
+    public void setMatrix4f() { ShaderProgram.setUniform("u_mat4",mat4.m30(mat4.m30() + 0.001f)); }
+
+    @Benchmark
+    public void setFloatArray() {
+        floats[0] += 0.001f;
+        ShaderProgram.setUniform("u_floats",floats);
+    }
+
+    @Benchmark
+    public void setVector4fArray() {
+        vec4s[0].x += 0.001f;
+        ShaderProgram.setUniform("u_vec4s",vec4s);
+    }
+
+    @Benchmark
+    public void setMatrix4fArray() {
+        mat4s[0].m30(mat4s[0].m30() + 0.001f);
+        ShaderProgram.setUniform("u_mat4s",mat4s);
+    }
+
+    @Benchmark
+    public void handleFloat() { u_float.set(f += 0.001f); }
+
+    @Benchmark
+    public void handleVector4f() { u_vec4.set(vec4.add(0.001f,0,0,0)); }
+
+    @Benchmark
+    public void handleMatrix4f() { u_mat4.set(mat4.m30(mat4.m30() + 0.001f)); }
+
+    @Benchmark
+    public void handleFloatArray() {
+        floats[0] += 0.001f;
+        u_floats.set(floats);
+    }
+
+    @Benchmark
+    public void handleMatrix4fArray() {
+        mat4s[0].m30(mat4s[0].m30() + 0.001f);
+        u_mat4s.set(mat4s);
+    }
+
+    @Benchmark
+    public void programFloat() { program.set("u_float",f += 0.001f); }
+
+    @Benchmark
+    public void programMatrix4f() { program.set("u_mat4",mat4.m30(mat4.m30() + 0.001f)); }
+
+    @Benchmark
+    public void setIntHit() { ShaderProgram.setUniform("u_int",7); }
+
+    @Benchmark
+    public void setFloatHit() { ShaderProgram.setUniform("u_float",1.0f); }
+
+    @Benchmark
+    public void setMatrix4fHit() { ShaderProgram.setUniform("u_mat4",mat4_hit); }
+
+    @Benchmark
+    public void setFloatArrayHit() { ShaderProgram.setUniform("u_floats",floats_hit); }
+
+    @Benchmark
+    public void handleMatrix4fHit() { u_mat4.set(mat4_hit); }
+}
@@ -0,0 +1,75 @@
+package io.github.heathensoft.guide.benchmarks;
+
+import io.github.heathensoft.guide.core.HeadlessContext;
+import io.github.heathensoft.guide.core.Shader;
+import io.github.heathensoft.guide.core.ShaderProgram;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShaderProgram.useProgram against an offscreen context (HeadlessContext)
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class UseProgramBenchmark {
+
+    static final String VERT_SOURCE = """
+            #version 440 core
+            uniform vec4 u_offset;
+            void main() { gl_Position = vec4(float(gl_VertexID)) + u_offset; }""";
+
+    static final String FRAG_SOURCE = """
+            #version 440 core
+            layout(location = 0) out vec4 f_color;
+            uniform vec4 u_color;
+            void main() { f_color = u_color; }""";
+
+    @Param({"2", "16"})
+    public int program_count;
+
+    HeadlessContext context;
+    ShaderProgram[] programs;
+    int[] handles;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        context = new HeadlessContext();
+        programs = new ShaderProgram[program_count];
+        handles = new int[program_count];
+        for (int i = 0; i < program_count; i++) {
+            Shader vert = new Shader(VERT_SOURCE, Shader.Type.VERT_SHADER);
+            Shader frag = new Shader(FRAG_SOURCE, Shader.Type.FRAG_SHADER);
+            programs[i] = new ShaderProgram("program_" + i,vert,frag);
+            handles[i] = programs[i].handle();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ShaderProgram.deleteAllPrograms();
+        context.dispose();
+    }
+
+    @Benchmark
+    public void switchProgram() {
+        ShaderProgram.useProgram(programs[next]);
+        next = (next + 1) % program_count;
+    }
+
+    @Benchmark
+    public void sameProgram() {
+        ShaderProgram.useProgram(programs[0]);
+    }
+
+    @Benchmark
+    public void byHandle() {
+        ShaderProgram.useProgram(handles[next]);
+        next = (next + 1) % program_count;
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+
+/**
+ * Offscreen opengl context for the GL benchmarks (headless GLFWWindow)
+ */
+public final class HeadlessContext implements Disposable {
+
+    private final GLFWWindow window;
+
+    public HeadlessContext() throws Exception {
+        BootConfiguration config = new BootConfiguration();
+        config.supported_resolutions.add(new Resolution(256,256));
+        config.windowed_mode_width = 256;
+        config.windowed_mode_height = 256;
+        config.window_title = "benchmark";
+        config.vsync_enabled = false;
+        config.headless = true;
+        window = new GLFWWindow();
+        window.initialize(config);
+        if (!window.hasGLContext()) {
+            window.terminate();
+            throw new Exception("no offscreen opengl context (EGL / OSMesa). Install Mesa to run the GL benchmarks");
+        }
+    }
+
+    public void dispose() { window.terminate(); }
+}
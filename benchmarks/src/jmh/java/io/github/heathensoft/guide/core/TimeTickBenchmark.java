@@ -0,0 +1,38 @@
+package io.github.heathensoft.guide.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Engine.Time.tick
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TimeTickBenchmark {
+
+    Engine.Time time;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        time = new Engine.Time();
+        time.start();
+    }
+
+    @Benchmark
+    public double tick() {
+        time.tick();
+        return time.frameTimeSeconds();
+    }
+
+    @Benchmark
+    public double tickAndCountFrame() {
+        time.tick();
+        time.incrementFpsCounter();
+        return time.frameTimeSeconds();
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.heathensoft.guide.core;
+
+import org.tinylog.Logger;
+
+import java.lang.management.ManagementFactory;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Heap allocation per frame and per engine stage (BootConfiguration.allocation_tracking)
+ */
+public final class AllocationTracker {
+
+    /**
+     * OFF: no measurements.
+     * TRACK: measure and report.
+     * STRICT_LOG: TRACK, and log checked scopes that allocate. (At most once a second)
+     * STRICT_FAIL: TRACK, and throw if a checked scope allocates
+     */
+    public enum Mode { OFF, TRACK, STRICT_LOG, STRICT_FAIL }
+
+    public static final int WARMUP_FRAMES = 300; // frames before strict checks start (class loading, JIT)
+    private static final long LOG_INTERVAL_NANOS = 1_000_000_000L;
+    private static final double SMOOTHING = 0.05;
+
+    private final com.sun.management.ThreadMXBean thread_bean;
+    private final Mode mode;
+    private volatile long frame_count;      // rendering thread
+    private volatile long frame_bytes;      // last frame (rendering thread)
+    private volatile long render_bytes;     // last frame (rendering thread)
+    private volatile long update_bytes;     // last frame of updates (update thread)
+    private volatile long frame_bytes_max;
+    private volatile double frame_bytes_average;
+    private volatile long frames_allocating;
+    private long update_bytes_accumulated;  // update thread
+    private long last_log_nanos;
+
+    AllocationTracker(Mode mode) {
+        com.sun.management.ThreadMXBean bean = null;
+        if (mode != null && mode != Mode.OFF) {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean sun_bean
+                    && sun_bean.isThreadAllocatedMemorySupported()) {
+                sun_bean.setThreadAllocatedMemoryEnabled(true);
+                bean = sun_bean;
+                Logger.debug("allocation tracking: {}", mode);
+            } else {
+                Logger.warn("allocation tracking: not supported by the jvm");
+                mode = Mode.OFF;
+            }
+        } this.thread_bean = bean;
+        this.mode = mode == null ? Mode.OFF : mode;
+    }
+
+    public Mode mode() { return mode; }
+    public boolean isEnabled() { return mode != Mode.OFF; }
+
+    /** @return bytes allocated by the calling thread since it started, or 0 if tracking is off */
+    public long allocatedBytes() {
+        return thread_bean == null ? 0 : thread_bean.getCurrentThreadAllocatedBytes();
+    }
+
+    /** @return mark to pass to check, at the beginning of the scope */
+    public long begin() { return allocatedBytes(); }
+
+    /**
+     * End of an allocation-free scope. In strict mode, logs or throws if the calling thread allocated since begin
+     * @param scope name used in the log / exception
+     * @param mark returned by begin (on the same thread)
+     * @return bytes allocated since begin
+     */
+    public long check(String scope, long mark) {
+        if (thread_bean == null) return 0;
+        long bytes = thread_bean.getCurrentThreadAllocatedBytes() - mark;
+        if (bytes > 0 && frame_count >= WARMUP_FRAMES) {
+            if (mode == Mode.STRICT_FAIL) {
+                throw new IllegalStateException("allocation-free scope \"" + scope + "\" allocated " + bytes + " bytes");
+            } else if (mode == Mode.STRICT_LOG) {
+                long now = nanoTime();
+                if (now - last_log_nanos > LOG_INTERVAL_NANOS) {
+                    last_log_nanos = now;
+                    Logger.warn("allocation-free scope \"{}\" allocated {} bytes", scope, bytes);
+                }
+            }
+        } return bytes;
+    }
+
+    /** @return bytes allocated by the rendering thread in the last frame */
+    public long frameBytes() { return frame_bytes; }
+
+    /** @return bytes allocated by rendering in the last frame */
+    public long renderBytes() { return render_bytes; }
+
+    /** @return bytes allocated by the updates of the last frame (all update steps) */
+    public long updateBytes() { return update_bytes; }
+
+    /** @return most bytes allocated in a frame after warm-up */
+    public long frameBytesMax() { return frame_bytes_max; }
+
+    /** @return smoothed bytes allocated per frame */
+    public double frameBytesAverage() { return frame_bytes_average; }
+
+    /** @return frames after warm-up that allocated */
+    public long framesAllocating() { return frames_allocating; }
+
+    /** update thread: one update step ended */
+    void endUpdate(long mark) {
+        update_bytes_accumulated += check("update",mark);
+    }
+
+    /** update thread: the updates of a frame are done */
+    void endUpdates() {
+        update_bytes = update_bytes_accumulated;
+        update_bytes_accumulated = 0;
+    }
+
+    /** rendering thread */
+    void endRender(long mark) {
+        render_bytes = check("render",mark);
+    }
+
+    /** rendering thread: mark from begin at the start of the frame */
+    @SuppressWarnings("NonAtomicOperationOnVolatileField") // single writer
+    void endFrame(long mark) {
+        if (thread_bean == null) return;
+        long bytes = thread_bean.getCurrentThreadAllocatedBytes() - mark;
+        frame_bytes = bytes;
+        if (frame_count >= WARMUP_FRAMES) {
+            if (bytes > 0) frames_allocating++;
+            if (bytes > frame_bytes_max) frame_bytes_max = bytes;
+        } frame_bytes_average += (bytes - frame_bytes_average) * SMOOTHING;
+        frame_count++;
+    }
+}
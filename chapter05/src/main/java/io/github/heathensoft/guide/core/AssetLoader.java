@@ -0,0 +1,161 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Asynchronous asset loading: I/O on virtual threads, opengl work queued for the opengl thread
+ */
+public final class AssetLoader implements Disposable {
+
+    /** Work done on the opengl thread with the loaded data */
+    public interface GLUpload<T,R> { R upload(T data) throws Exception; }
+
+    private final ExecutorService io_executor;
+    private final ConcurrentLinkedQueue<Upload<?,?>> uploads;
+    private final List<ProgramBatch> compiling;
+    private final AtomicInteger pending_loads;
+    private final AtomicInteger pending_uploads;
+    private final AtomicInteger pending_compiles;
+    private final long upload_budget_nanos;
+    private final boolean gl_context;
+
+    AssetLoader(double upload_budget_ms, boolean gl_context) {
+        this.gl_context = gl_context;
+        this.io_executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.uploads = new ConcurrentLinkedQueue<>();
+        this.pending_loads = new AtomicInteger();
+        this.pending_uploads = new AtomicInteger();
+        this.pending_compiles = new AtomicInteger();
+        this.compiling = new ArrayList<>();
+        this.upload_budget_nanos = (long) (Math.max(0.0, upload_budget_ms) * 1_000_000);
+    }
+
+    /**
+     * Load on a virtual thread.
+     * @param io_task reads and decodes the asset. Must not use opengl
+     * @return future completed on the virtual thread
+     */
+    public <T> CompletableFuture<T> load(Callable<T> io_task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        pending_loads.incrementAndGet();
+        io_executor.execute(() -> {
+            try { future.complete(io_task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally { pending_loads.decrementAndGet(); }
+        }); return future;
+    }
+
+    /**
+     * Load on a virtual thread, then upload on the opengl thread.
+     * @param io_task reads and decodes the asset. Must not use opengl
+     * @param gl_task creates the opengl objects from the loaded data
+     * @return future completed on the opengl thread
+     */
+    public <T,R> CompletableFuture<R> load(Callable<T> io_task, GLUpload<T,R> gl_task) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        pending_loads.incrementAndGet();
+        io_executor.execute(() -> {
+            try { T data = io_task.call();
+                if (!gl_context) {
+                    future.completeExceptionally(noContext());
+                    return;
+                } pending_uploads.incrementAndGet();
+                uploads.add(new Upload<>(data,gl_task,future));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally { pending_loads.decrementAndGet(); }
+        }); return future;
+    }
+
+    /**
+     * Queue work for the opengl thread. Can be called from any thread.
+     * @return future completed on the opengl thread
+     */
+    public <R> CompletableFuture<R> upload(Callable<R> gl_task) {
+        if (!gl_context) return CompletableFuture.failedFuture(noContext());
+        CompletableFuture<R> future = new CompletableFuture<>();
+        pending_uploads.incrementAndGet();
+        uploads.add(new Upload<Void,R>(null, data -> gl_task.call(), future));
+        return future;
+    }
+
+    /**
+     * opengl thread: submit the batch (if not submitted), then poll it every frame until every program is done.
+     * The futures of the batch complete on the opengl thread. Batches left compiling on dispose are disposed
+     */
+    public void compile(ProgramBatch batch) {
+        if (!gl_context) {
+            batch.fail(noContext());
+            return;
+        } if (!batch.isSubmitted()) batch.submit();
+        if (batch.isDone()) return;
+        compiling.add(batch);
+        pending_compiles.incrementAndGet();
+    }
+
+    /** @return number of assets being read / decoded */
+    public int pendingLoads() { return pending_loads.get(); }
+
+    /** @return number of uploads waiting for the opengl thread */
+    public int pendingUploads() { return pending_uploads.get(); }
+
+    /** @return number of program batches still compiling */
+    public int pendingCompiles() { return pending_compiles.get(); }
+
+    /** @return true if nothing is loading, waiting to be uploaded or compiling */
+    public boolean isIdle() { return pending_loads.get() == 0 && pending_uploads.get() == 0 && pending_compiles.get() == 0; }
+
+    /** opengl thread: poll the compiling programs, then do queued uploads until the time budget is spent */
+    void processUploads() {
+        for (int i = compiling.size() - 1; i >= 0; i--) {
+            if (compiling.get(i).poll()) {
+                compiling.remove(i);
+                pending_compiles.decrementAndGet();
+            }
+        }
+        long deadline = nanoTime() + upload_budget_nanos;
+        Upload<?,?> upload;
+        while ((upload = uploads.poll()) != null) {
+            pending_uploads.decrementAndGet();
+            upload.run();
+            if (nanoTime() - deadline >= 0) break;
+        }
+    }
+
+    public void dispose() {
+        io_executor.shutdownNow();
+        int cancelled = 0;
+        Upload<?,?> upload;
+        while ((upload = uploads.poll()) != null) {
+            upload.future.cancel(false);
+            cancelled++;
+        } if (cancelled > 0) {
+            Logger.debug("asset loader: cancelled {} uploads", cancelled);
+        } for (ProgramBatch batch : compiling) {
+            batch.dispose();
+        } compiling.clear();
+        pending_compiles.set(0);
+    }
+
+    private static IllegalStateException noContext() {
+        return new IllegalStateException("asset loader: no opengl context (headless), opengl work is not done");
+    }
+
+    private record Upload<T,R>(T data, GLUpload<T,R> gl_task, CompletableFuture<R> future) {
+        void run() {
+            try { future.complete(gl_task.upload(data));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
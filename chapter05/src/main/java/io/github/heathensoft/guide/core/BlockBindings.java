@@ -0,0 +1,113 @@
+package io.github.heathensoft.guide.core;
+
+import org.tinylog.Logger;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL43.*;
+
+/**
+ * Buffer binding points by block name, for uniform blocks and shader storage blocks
+ */
+final class BlockBindings {
+
+    static final BlockBindings UNIFORM = new BlockBindings("uniform",GL_UNIFORM_BLOCK,
+            GL_MAX_UNIFORM_BUFFER_BINDINGS,GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT);
+    static final BlockBindings STORAGE = new BlockBindings("storage",GL_SHADER_STORAGE_BLOCK,
+            GL_MAX_SHADER_STORAGE_BUFFER_BINDINGS,GL_SHADER_STORAGE_BUFFER_OFFSET_ALIGNMENT);
+
+    final String label;
+    final int interface_type; // GL_UNIFORM_BLOCK or GL_SHADER_STORAGE_BLOCK
+    private final int max_bindings_query;
+    private final int offset_alignment_query;
+    private String[] names = new String[0]; // by binding point
+    private int max_bindings;
+    private int offset_alignment;
+
+    private BlockBindings(String label, int interface_type, int max_bindings_query, int offset_alignment_query) {
+        this.label = label;
+        this.interface_type = interface_type;
+        this.max_bindings_query = max_bindings_query;
+        this.offset_alignment_query = offset_alignment_query;
+    }
+
+    /** new context: forget the assigned binding points and query the limits again */
+    static void contextCreated() {
+        UNIFORM.reset();
+        STORAGE.reset();
+    }
+
+    /** @return the binding point of the block, assigned on first use */
+    int binding(String block_name) {
+        int binding = find(block_name);
+        if (binding >= 0) return binding;
+        for (int i = maxBindings() - 1; i >= 0; i--) {
+            if (blockName(i) == null) return assign(block_name,i);
+        } throw new IllegalStateException(label + " blocks: no free binding point for \"" + block_name + "\" (max " + max_bindings + ")");
+    }
+
+    /** @return the binding point of the block, or -1 if not assigned */
+    int find(String block_name) {
+        for (int i = 0; i < names.length; i++) {
+            if (block_name.equals(names[i])) return i;
+        } return -1;
+    }
+
+    /** @return name of the block at the binding point, or null */
+    String blockName(int binding) {
+        return binding >= 0 && binding < names.length ? names[binding] : null;
+    }
+
+    /** @return number of binding points */
+    int maxBindings() {
+        if (max_bindings == 0) queryLimits();
+        return max_bindings;
+    }
+
+    /** @return bind range offsets must be a multiple of this */
+    int offsetAlignment() {
+        if (offset_alignment == 0) queryLimits();
+        return offset_alignment;
+    }
+
+    /**
+     * Reserve an explicit binding point for the block. (layout(binding = n) in the shader)
+     * @throws IllegalStateException the binding point is taken by another block, or the block has another binding point
+     */
+    void reserve(String block_name, int binding) {
+        String name = blockName(binding);
+        if (block_name.equals(name)) return;
+        if (name != null) {
+            throw new IllegalStateException(label + " block \"" + block_name + "\": explicit binding " + binding + " is taken by \"" + name + "\"");
+        } int assigned = find(block_name);
+        if (assigned >= 0) {
+            throw new IllegalStateException(label + " block \"" + block_name + "\": explicit binding " + binding + " differs from binding " + assigned);
+        } assign(block_name,binding);
+    }
+
+    /** Set the binding point of a block in the program */
+    void bindProgramBlock(int program, int block, int binding) {
+        if (interface_type == GL_UNIFORM_BLOCK) glUniformBlockBinding(program,block,binding);
+        else glShaderStorageBlockBinding(program,block,binding);
+    }
+
+    private int assign(String block_name, int binding) {
+        if (binding >= maxBindings()) {
+            throw new IllegalStateException(label + " blocks: no free binding point for \"" + block_name + "\" (max " + max_bindings + ")");
+        } if (binding >= names.length) names = Arrays.copyOf(names,binding + 1);
+        names[binding] = block_name;
+        Logger.debug("{} block \"{}\": binding point {}",label,block_name,binding);
+        return binding;
+    }
+
+    private void reset() {
+        names = new String[0];
+        max_bindings = 0;
+        offset_alignment = 0;
+    }
+
+    private void queryLimits() {
+        max_bindings = glGetInteger(max_bindings_query);
+        offset_alignment = glGetInteger(offset_alignment_query);
+    }
+}
@@ -0,0 +1,196 @@
+package io.github.heathensoft.guide.core;
+
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Writes uniform / shader storage block members in std140 or std430 layout
+ */
+public final class BlockWriter {
+
+    public enum Layout { STD140, STD430 }
+
+    private final Layout layout;
+    private long address;
+    private int capacity;
+    private int offset;
+
+    public BlockWriter(Layout layout) { this.layout = layout; }
+
+    /** Start writing at address. (capacity in bytes) */
+    public BlockWriter reset(long address, int capacity) {
+        this.address = address;
+        this.capacity = capacity;
+        this.offset = 0;
+        return this;
+    }
+
+    public Layout layout() { return layout; }
+    /** @return bytes written (offset of the next member before alignment) */
+    public int offset() { return offset; }
+    public int capacity() { return capacity; }
+
+    /** Move to a member offset. (As queried: GL_OFFSET) */
+    public BlockWriter position(int offset) {
+        this.offset = offset;
+        return this;
+    }
+
+    public BlockWriter align(int alignment) {
+        offset = (offset + alignment - 1) & -alignment;
+        return this;
+    }
+
+    public BlockWriter skip(int bytes) {
+        offset += bytes;
+        return this;
+    }
+
+    public BlockWriter putFloat(float f) {
+        long a = member(4,4);
+        memPutFloat(a,f);
+        return this;
+    }
+
+    /** int, uint or bool */
+    public BlockWriter putInt(int i) {
+        long a = member(4,4);
+        memPutInt(a,i);
+        return this;
+    }
+
+    public BlockWriter putVec2(float x, float y) {
+        long a = member(8,8);
+        memPutFloat(a,x);
+        memPutFloat(a + 4,y);
+        return this;
+    }
+
+    public BlockWriter putVec3(float x, float y, float z) {
+        long a = member(16,12);
+        memPutFloat(a,x);
+        memPutFloat(a + 4,y);
+        memPutFloat(a + 8,z);
+        return this;
+    }
+
+    public BlockWriter putVec4(float x, float y, float z, float w) {
+        long a = member(16,16);
+        memPutFloat(a,x);
+        memPutFloat(a + 4,y);
+        memPutFloat(a + 8,z);
+        memPutFloat(a + 12,w);
+        return this;
+    }
+
+    public BlockWriter putVec2(Vector2f vec2) { return putVec2(vec2.x,vec2.y); }
+    public BlockWriter putVec3(Vector3f vec3) { return putVec3(vec3.x,vec3.y,vec3.z); }
+    public BlockWriter putVec4(Vector4f vec4) { return putVec4(vec4.x,vec4.y,vec4.z,vec4.w); }
+
+    public BlockWriter putIVec2(int x, int y) {
+        long a = member(8,8);
+        memPutInt(a,x);
+        memPutInt(a + 4,y);
+        return this;
+    }
+
+    public BlockWriter putIVec3(int x, int y, int z) {
+        long a = member(16,12);
+        memPutInt(a,x);
+        memPutInt(a + 4,y);
+        memPutInt(a + 8,z);
+        return this;
+    }
+
+    public BlockWriter putIVec4(int x, int y, int z, int w) {
+        long a = member(16,16);
+        memPutInt(a,x);
+        memPutInt(a + 4,y);
+        memPutInt(a + 8,z);
+        memPutInt(a + 12,w);
+        return this;
+    }
+
+    public BlockWriter putMat3(Matrix3f m) {
+        long a = member(16,48);
+        memPutFloat(a,m.m00());
+        memPutFloat(a + 4,m.m01());
+        memPutFloat(a + 8,m.m02());
+        memPutFloat(a + 16,m.m10());
+        memPutFloat(a + 20,m.m11());
+        memPutFloat(a + 24,m.m12());
+        memPutFloat(a + 32,m.m20());
+        memPutFloat(a + 36,m.m21());
+        memPutFloat(a + 40,m.m22());
+        return this;
+    }
+
+    public BlockWriter putMat4(Matrix4f m) {
+        long a = member(16,64);
+        putMat4(a,m);
+        return this;
+    }
+
+    /** float[count] member */
+    public BlockWriter putFloatArray(float[] array, int offset, int count) {
+        int stride = layout == Layout.STD140 ? 16 : 4;
+        long a = member(stride,stride * count);
+        for (int i = 0; i < count; i++) {
+            memPutFloat(a + (long) i * stride,array[offset + i]);
+        } return this;
+    }
+
+    /** vec4[count] member */
+    public BlockWriter putVec4Array(Vector4f[] array, int offset, int count) {
+        long a = member(16,16 * count);
+        for (int i = 0; i < count; i++) {
+            Vector4f v = array[offset + i];
+            long e = a + 16L * i;
+            memPutFloat(e,v.x);
+            memPutFloat(e + 4,v.y);
+            memPutFloat(e + 8,v.z);
+            memPutFloat(e + 12,v.w);
+        } return this;
+    }
+
+    /** mat4[count] member */
+    public BlockWriter putMat4Array(Matrix4f[] array, int offset, int count) {
+        long a = member(16,64 * count);
+        for (int i = 0; i < count; i++) {
+            putMat4(a + 64L * i,array[offset + i]);
+        } return this;
+    }
+
+    /** @return address of the member: aligned offset, advanced by size */
+    private long member(int alignment, int size) {
+        int aligned = (offset + alignment - 1) & -alignment;
+        int end = aligned + size;
+        if (end > capacity) throw new IllegalStateException("block writer: " + end + " bytes exceeds the capacity " + capacity);
+        offset = end;
+        return address + aligned;
+    }
+
+    private static void putMat4(long a, Matrix4f m) {
+        memPutFloat(a,m.m00());
+        memPutFloat(a + 4,m.m01());
+        memPutFloat(a + 8,m.m02());
+        memPutFloat(a + 12,m.m03());
+        memPutFloat(a + 16,m.m10());
+        memPutFloat(a + 20,m.m11());
+        memPutFloat(a + 24,m.m12());
+        memPutFloat(a + 28,m.m13());
+        memPutFloat(a + 32,m.m20());
+        memPutFloat(a + 36,m.m21());
+        memPutFloat(a + 40,m.m22());
+        memPutFloat(a + 44,m.m23());
+        memPutFloat(a + 48,m.m30());
+        memPutFloat(a + 52,m.m31());
+        memPutFloat(a + 56,m.m32());
+        memPutFloat(a + 60,m.m33());
+    }
+}
@@ -9,6 +9,17 @@ import java.util.List;
  * Frederik Dahl 12/1/2024
  */
 public class BootConfiguration {
+
+    /**
+     * How the engine advances the game (IGame.update)
+     * FIXED_STEP: updates at a fixed interval of 1/target_ups. Rendering gets the interpolation alpha:
+     * how far the frame is between the last update and the next (0 to 1).
+     * VARIABLE_STEP: one update per frame with the frame time.
+     * SEMI_FIXED_STEP: updates the frame time in steps no larger than 1/target_ups.
+     * Variable and semi-fixed render with alpha = 1.
+     */
+    public enum LoopStrategy { FIXED_STEP, VARIABLE_STEP, SEMI_FIXED_STEP }
+
     public final List<Resolution> supported_resolutions = new ArrayList<>();
     public String window_title = "";
     public boolean resizable_window = false;
@@ -18,4 +29,19 @@ public class BootConfiguration {
     public int windowed_mode_width = 1280;
     public int windowed_mode_height = 720;
     public int target_ups = 60;
+    public int target_fps = 0; // frame rate cap when v-sync is disabled (0 = uncapped)
+    public LoopStrategy loop_strategy = LoopStrategy.FIXED_STEP;
+    public int max_updates_per_frame = 5; // catch-up updates per frame before dropping simulation time (0 = no limit)
+    public boolean adaptive_ups = false; // lower the target ups under sustained update load (UpsGovernor)
+    public int job_threads = -1; // job system worker threads (-1 = available processors - 1)
+    public double gl_upload_budget_ms = 2.0; // time per frame spent on queued asset uploads (AssetLoader)
+    public boolean render_thread = false; // render on a separate thread, update and poll events on the main thread
+    public boolean headless = false; // offscreen, no monitor. For servers, CI and benchmarks (EGL / OSMesa, or no opengl)
+    public String input_record_file = null; // record the input of every update step to this file (InputRecorder)
+    public String input_replay_file = null; // replay a recording instead of user input, exit when it ends (InputReplay)
+    public boolean gpu_profiling = true; // gpu timestamp queries for profiler scopes (Profiler)
+    public String program_cache_dir = null; // directory of linked program binaries, for fast startup (ShaderProgram.create)
+    public String trace_file = null; // stream a chrome trace of the session to this file, open in Perfetto (TraceWriter)
+    public int max_frames_in_flight = 0; // low latency mode: frames queued behind swap, 1 to 3 (0 = off, driver decides)
+    public AllocationTracker.Mode allocation_tracking = AllocationTracker.Mode.OFF; // heap allocation per frame / stage, strict mode for soak tests
 }
@@ -0,0 +1,155 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL43.*;
+
+/**
+ * A program with a single compute shader
+ */
+public final class ComputeProgram extends ShaderProgram {
+
+    private static int[] max_group_count; // per context
+
+    private final int local_size_x;
+    private final int local_size_y;
+    private final int local_size_z;
+
+    /**
+     * failing to link the program will not delete the shader
+     * @param name optional program name
+     * @param comp_shader compute shader
+     * @throws Exception could not link the program
+     */
+    public ComputeProgram(String name, Shader comp_shader) throws Exception {
+        this(name,comp_shader,false);
+    }
+
+    private ComputeProgram(String name, Shader comp_shader, boolean retrievable) throws Exception {
+        super(name,comp_shader,retrievable);
+        int[] local_size = localSize(handle());
+        local_size_x = local_size[0];
+        local_size_y = local_size[1];
+        local_size_z = local_size[2];
+    }
+
+    /** program linked from a binary */
+    private ComputeProgram(String name, int linked_handle) {
+        super(name,linked_handle);
+        int[] local_size = localSize(handle());
+        local_size_x = local_size[0];
+        local_size_y = local_size[1];
+        local_size_z = local_size[2];
+    }
+
+    /**
+     * Create a compute program from source. Uses the program binary cache like ShaderProgram.create.
+     * The shader is deleted after linking.
+     * @param name optional program name
+     * @throws Exception could not compile or link the program
+     */
+    public static ComputeProgram create(String name, String comp_source) throws Exception {
+        String key = null;
+        if (ProgramBinaryCache.isEnabled()) {
+            key = ProgramBinaryCache.key(comp_source);
+            int linked_handle = ProgramBinaryCache.load(key,name);
+            if (linked_handle != 0) return new ComputeProgram(name,linked_handle);
+        } Shader comp_shader = new Shader(comp_source,Shader.Type.COMP_SHADER);
+        try { ComputeProgram program = new ComputeProgram(name,comp_shader,key != null);
+            program.detachShaders(true);
+            if (key != null) ProgramBinaryCache.store(key,program.handle(),program.name());
+            return program;
+        } catch (Exception e) {
+            Disposable.dispose(comp_shader);
+            throw e;
+        }
+    }
+
+    /** Use the program and dispatch work groups */
+    public void dispatch(int groups_x, int groups_y, int groups_z) {
+        int[] max = maxGroupCount();
+        if (groups_x > max[0] || groups_y > max[1] || groups_z > max[2]) {
+            throw new IllegalArgumentException("compute program [" + name() + "] dispatch " + groups_x + "," + groups_y + "," + groups_z
+                    + " exceeds the max work group count " + max[0] + "," + max[1] + "," + max[2]);
+        } if (groups_x <= 0 || groups_y <= 0 || groups_z <= 0) return;
+        GLState.useProgram(handle());
+        glDispatchCompute(groups_x,groups_y,groups_z);
+    }
+
+    /** Dispatch enough work groups to cover the items (the shader must skip items out of range) */
+    public void dispatchItems(int items_x, int items_y, int items_z) {
+        dispatch(groups(items_x,local_size_x),groups(items_y,local_size_y),groups(items_z,local_size_z));
+    }
+
+    public void dispatchItems(int items) { dispatchItems(items,1,1); }
+
+    /**
+     * Use the program and dispatch with the group counts in a buffer (3 uints), written by the gpu or the cpu.
+     * @param buffer GL_DISPATCH_INDIRECT_BUFFER (StorageBuffer.bufferHandle)
+     * @param offset bytes, multiple of 4
+     */
+    public void dispatchIndirect(int buffer, long offset) {
+        GLState.useProgram(handle());
+        GLState.bindBuffer(GL_DISPATCH_INDIRECT_BUFFER,buffer);
+        glDispatchComputeIndirect(offset);
+    }
+
+    public int localSizeX() { return local_size_x; }
+    public int localSizeY() { return local_size_y; }
+    public int localSizeZ() { return local_size_z; }
+
+    // Memory barriers: make shader writes (storage buffers, images) visible to the next commands of the kind
+
+    /** glMemoryBarrier with GL_*_BARRIER_BIT flags */
+    public static void barrier(int barrier_bits) { glMemoryBarrier(barrier_bits); }
+
+    /** Next dispatches / draws read the storage buffers */
+    public static void barrierStorage() { glMemoryBarrier(GL_SHADER_STORAGE_BARRIER_BIT); }
+
+    /** Next draws read the written buffers as vertex attributes */
+    public static void barrierVertexAttribs() { glMemoryBarrier(GL_VERTEX_ATTRIB_ARRAY_BARRIER_BIT); }
+
+    /** Next draws read the written buffers as element (index) arrays */
+    public static void barrierElements() { glMemoryBarrier(GL_ELEMENT_ARRAY_BARRIER_BIT); }
+
+    /** Next indirect draws / dispatches read the written commands */
+    public static void barrierIndirect() { glMemoryBarrier(GL_COMMAND_BARRIER_BIT); }
+
+    /** Next reads / copies of the written buffers (glGetBufferSubData, StorageBuffer.read) */
+    public static void barrierBufferUpdate() { glMemoryBarrier(GL_BUFFER_UPDATE_BARRIER_BIT); }
+
+    /** Next shaders sample the written images as textures */
+    public static void barrierTextureFetch() { glMemoryBarrier(GL_TEXTURE_FETCH_BARRIER_BIT); }
+
+    /** Next shaders load / store the written images */
+    public static void barrierImageAccess() { glMemoryBarrier(GL_SHADER_IMAGE_ACCESS_BARRIER_BIT); }
+
+    /** new context: query the limits again */
+    static void contextCreated() { max_group_count = null; }
+
+    private static int groups(int items, int local_size) {
+        return items <= 0 ? 0 : (items + local_size - 1) / local_size;
+    }
+
+    private static int[] localSize(int program) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer buffer = stack.mallocInt(3);
+            glGetProgramiv(program,GL_COMPUTE_WORK_GROUP_SIZE,buffer);
+            return new int[] { buffer.get(0), buffer.get(1), buffer.get(2) };
+        }
+    }
+
+    private static int[] maxGroupCount() {
+        if (max_group_count == null) {
+            GLInfo info = Engine.get().glInfo();
+            if (info != null) max_group_count = info.max_compute_work_group_count;
+            else { // no engine (tools, benchmarks)
+                max_group_count = new int[3];
+                for (int i = 0; i < 3; i++) max_group_count[i] = glGetIntegeri(GL_MAX_COMPUTE_WORK_GROUP_COUNT,i);
+            }
+        } return max_group_count;
+    }
+}
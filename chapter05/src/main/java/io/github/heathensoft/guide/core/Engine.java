@@ -1,8 +1,15 @@
 package io.github.heathensoft.guide.core;
 
+import io.github.heathensoft.guide.utils.Disposable;
+import io.github.heathensoft.guide.utils.TraceWriter;
 import org.lwjgl.Version;
 import org.tinylog.Logger;
 
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
 import static java.lang.System.nanoTime;
 
 /**
@@ -19,10 +26,34 @@ public class Engine {
         } return instance;
     }
 
+    private static final int SCOPE_UPDATE = Profiler.register("update");
+    private static final int SCOPE_RENDER = Profiler.register("render");
+    private static final int SCOPE_SWAP = Profiler.register("swap");
+
     private GLFWWindow window;
     private GLInfo info;
     private IGame game;
     private Time time;
+    private double time_accumulator;
+    private BootConfiguration.LoopStrategy loop_strategy;
+    private UpsGovernor ups_governor;
+    private JobSystem jobs;
+    private AssetLoader assets;
+    private final FrameLimiter frame_limiter = new FrameLimiter();
+    private FrameFence frame_fence;     // low latency mode (null if off)
+    private final InputState input = new InputState();
+    private final InputBindings bindings = new InputBindings(input);
+    private InputRecorder input_recorder;
+    private InputReplay input_replay;
+    private Profiler profiler;          // opengl thread
+    private Profiler update_profiler;   // update thread (same as profiler unless render thread mode)
+    private AllocationTracker allocations;
+
+    // render thread mode
+    private FrameExchange<FrameSnapshot> frame_exchange;
+    private final AtomicBoolean resize_requested = new AtomicBoolean();
+    private volatile boolean render_thread_running;
+    private Thread render_thread;
 
     public void run(IGame game, String[] args) {
         if (this.game == null && game != null) {
@@ -33,6 +64,18 @@ public class Engine {
             org.tinylog.configuration.Configuration.set("writer","console");
             org.tinylog.configuration.Configuration.set("writer.format","{date: HH:mm:ss.SS} {level}: {message}");
             game.configure(boot_configuration,args);
+            if (boot_configuration.render_thread && !rendersSnapshots(game)) {
+                Logger.warn("render thread disabled: {} does not override render(FrameSnapshot,float)",game.getClass().getSimpleName());
+                boot_configuration.render_thread = false;
+            }
+            loop_strategy = boot_configuration.loop_strategy;
+            allocations = new AllocationTracker(boot_configuration.allocation_tracking);
+            if (boot_configuration.trace_file != null) {
+                try { TraceWriter.start(boot_configuration.trace_file);
+                } catch (IOException e) {
+                    Logger.error(e,"unable to start tracing");
+                }
+            }
             int memory = (int)(Runtime.getRuntime().maxMemory() / 1000000L);
             int processors = Runtime.getRuntime().availableProcessors();
             String os_name = System.getProperty("os.name");
@@ -49,10 +92,33 @@ public class Engine {
             try { window.initialize(boot_configuration);
             } catch (Exception e) {
                 Logger.error(e);
+                TraceWriter.stop();
                 return;
             }
-            info = new GLInfo(window.handle());
+            try { initializeInputRecording(boot_configuration);
+            } catch (IOException e) {
+                Logger.error(e);
+                window.terminate();
+                TraceWriter.stop();
+                return;
+            } info = window.hasGLContext() ? new GLInfo(window.handle()) : null;
+            if (info != null) ProgramBinaryCache.initialize(boot_configuration.program_cache_dir,info);
+            ups_governor = new UpsGovernor(boot_configuration,window);
+            jobs = new JobSystem(boot_configuration.job_threads < 0 ?
+                    processors - 1 : boot_configuration.job_threads);
+            assets = new AssetLoader(boot_configuration.gl_upload_budget_ms,window.hasGLContext());
+            profiler = new Profiler(window.hasGLContext() && boot_configuration.gpu_profiling);
+            if (window.hasGLContext() && boot_configuration.max_frames_in_flight > 0) {
+                frame_fence = new FrameFence(boot_configuration.max_frames_in_flight);
+            } update_profiler = boot_configuration.render_thread && window.hasGLContext() ? new Profiler(false) : profiler;
             Logger.debug("initialized window, starting game");
+            if (!window.hasGLContext()) {
+                runWithoutRendering();
+                return;
+            } if (boot_configuration.render_thread) {
+                runWithRenderThread();
+                return;
+            }
             /*
              *  Game start
              */
@@ -60,30 +126,25 @@ public class Engine {
             } catch (Exception e) {
                 Logger.error(e);
                 game.exit();
+                Disposable.dispose(input_recorder);
+                assets.dispose();
+                jobs.dispose();
                 window.terminate();
+                TraceWriter.stop();
                 return;
             }
             try {
                 time.start();
-                double fixed_time_step;
-                double time_accumulator = 0.0;
+                long input_time_nanos = nanoTime();
                 while (!window.shouldClose()) {
                     /*
                      *  Main Loop. Synced up with monitor refresh rate if v-sync is enabled.
                      */
-                    fixed_time_step = 1.0 / window.targetUps();
-                    time.tick();
-                    time_accumulator += time.frameTimeSeconds();
-                    while (time_accumulator >= fixed_time_step) {
-                        /*
-                         *  Game update happens at a fixed interval of (window.targetUps()) / second
-                         */
-                        // Todo: process input
-
-                        game.update((float) fixed_time_step);
-                        time.incrementUpsCounter();
-                        time_accumulator -= fixed_time_step;
-                    } if (!window.isMinimized()) {
+                    long frame_start = nanoTime();
+                    long frame_allocation_mark = allocations.begin();
+                    updateGame();
+                    assets.processUploads();
+                    if (!window.isMinimized()) {
                         if (window.shouldChangeGameResolution()) {
                             /*
                              *  Window found a better suited Game resolution.
@@ -94,31 +155,342 @@ public class Engine {
                         /*
                          *  Game render
                          */
-                        game.render();
-
+                        long render_start = nanoTime();
+                        profiler.begin(SCOPE_RENDER);
+                        long render_allocation_mark = allocations.begin();
+                        game.render(interpolationAlpha());
+                        allocations.endRender(render_allocation_mark);
+                        profiler.end(SCOPE_RENDER);
+                        long swap_start = nanoTime();
+                        time.recordStage(Time.Stage.RENDER,render_start,swap_start);
+                        TraceWriter.complete("engine","render",render_start,swap_start);
                         /*
                          *  Swap the back and the front buffers in order to display
                          *  what has been rendered and begin rendering a new frame.
                          */
+                        profiler.begin(SCOPE_SWAP);
                         window.swapRenderBuffers();
+                        profiler.end(SCOPE_SWAP);
+                        long swap_end = nanoTime();
+                        time.recordStage(Time.Stage.SWAP,swap_start,swap_end);
+                        TraceWriter.complete("engine","swap",swap_start,swap_end);
+                        time.recordInputLatency(swap_end - input_time_nanos);
+                        if (frame_fence != null) {
+                            /*
+                             *  Low latency mode: wait for the gpu to catch up before polling input for the next frame
+                             */
+                            frame_fence.sync();
+                            long wait_end = nanoTime();
+                            time.recordGpuWait(swap_end,wait_end);
+                            TraceWriter.complete("engine","gpu wait",swap_end,wait_end);
+                        }
+                    } if (!window.isVsyncEnabled()) {
+                        /*
+                         *  Without v-sync: hold the loop back to the target frame rate (if any)
+                         */
+                        time.recordDeadlineError(frame_limiter.sync(window.targetFps()));
                     }
                     /*
                      *  GLFW polls for any user events, triggering callbacks
                      */
+                    long poll_start = nanoTime();
                     window.processUserEvents();
+                    input_time_nanos = nanoTime();
+                    time.recordStage(Time.Stage.POLL,poll_start,input_time_nanos);
+                    TraceWriter.complete("engine","poll",poll_start,input_time_nanos);
+                    TraceWriter.complete("engine","frame",frame_start,input_time_nanos);
                     time.incrementFpsCounter();
+                    profiler.endFrame();
+                    GLState.endFrame();
+                    allocations.endFrame(frame_allocation_mark);
                 }
             } catch (Exception e) {
                 Logger.error(e);
             } finally {
                 Logger.debug("exiting game");
                 game.exit();
+                profiler.dispose();
+                Disposable.dispose(frame_fence);
+                Disposable.dispose(input_recorder);
+                assets.dispose();
+                jobs.dispose();
                 Logger.debug("terminating window");
                 window.terminate();
+                TraceWriter.stop();
             }
         }
     }
 
+    /**
+     * Advance the game by the time since the last call. (See BootConfiguration.LoopStrategy)
+     * @return number of updates
+     */
+    private int updateGame() {
+        double fixed_time_step = 1.0 / window.targetUps();
+        time.tick();
+        double frame_time = time.frameTimeSeconds();
+        ups_governor.timeDropped(time.frameTimeDroppedSeconds());
+        int max_updates = ups_governor.maxUpdatesPerFrame();
+        int updates = 0;
+        switch (loop_strategy) {
+            case FIXED_STEP -> {
+                /*
+                 *  Game update happens at a fixed interval of (window.targetUps()) / second
+                 *  What is left in the accumulator is used to interpolate the render.
+                 */
+                time_accumulator += frame_time;
+                while (time_accumulator >= fixed_time_step) {
+                    if (updates == max_updates) {
+                        // Don't spiral. Drop whole steps, keep the remainder for interpolation
+                        double dropped = time_accumulator - (time_accumulator % fixed_time_step);
+                        time_accumulator -= dropped;
+                        ups_governor.timeDropped(dropped);
+                        break;
+                    } updateGame(fixed_time_step);
+                    time_accumulator -= fixed_time_step;
+                    updates++;
+                } ups_governor.endFrame(frame_time);
+            } case VARIABLE_STEP -> {
+                updateGame(frame_time);
+                updates++;
+            } case SEMI_FIXED_STEP -> {
+                double time_left = frame_time;
+                while (time_left > 0.0) {
+                    if (updates == max_updates) {
+                        ups_governor.timeDropped(time_left);
+                        break;
+                    } double delta_time = Math.min(time_left,fixed_time_step);
+                    updateGame(delta_time);
+                    time_left -= delta_time;
+                    updates++;
+                } ups_governor.endFrame(frame_time);
+            }
+        } allocations.endUpdates();
+        return updates;
+    }
+
+    private void updateGame(double delta_time) {
+        /*
+         *  Fold the input events since the last step (or the next recorded step) into the input state
+         */
+        input.beginStep();
+        if (input_replay != null) {
+            window.inputEvents().discard();
+            if (!input_replay.next(input)) {
+                if (!window.shouldClose()) {
+                    Logger.info("input replay ended after {} update steps", input_replay.steps());
+                    exitMainLoop();
+                } return;
+            } delta_time = input_replay.deltaTime();
+        } else {
+            window.inputEvents().drainTo(input,input_recorder);
+            if (input_recorder != null) {
+                input_recorder.endStep(delta_time);
+            }
+        } long update_start = nanoTime();
+        update_profiler.begin(SCOPE_UPDATE);
+        long allocation_mark = allocations.begin();
+        game.update((float) delta_time);
+        allocations.endUpdate(allocation_mark);
+        update_profiler.end(SCOPE_UPDATE);
+        long update_end = nanoTime();
+        time.recordStage(Time.Stage.UPDATE,update_start,update_end);
+        TraceWriter.complete("engine","update",update_start,update_end);
+        ups_governor.recordUpdate(update_end - update_start);
+        time.incrementUpsCounter();
+    }
+
+    /** Record or replay the input of every update step (BootConfiguration.input_record_file / input_replay_file) */
+    /** Without snapshots the render thread would read the game state while the main thread updates it */
+    private static boolean rendersSnapshots(IGame game) {
+        try { return game.getClass().getMethod("render",FrameSnapshot.class,float.class).getDeclaringClass() != IGame.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private void initializeInputRecording(BootConfiguration config) throws IOException {
+        if (config.input_replay_file != null) {
+            input_replay = new InputReplay(config.input_replay_file);
+            if (input_replay.recordedStrategy() != loop_strategy || input_replay.recordedUps() != window.targetUps()) {
+                Logger.warn("input recorded with {} at {} ups, replaying with {} at {} ups",
+                        input_replay.recordedStrategy(),input_replay.recordedUps(),loop_strategy,window.targetUps());
+            }
+        } else if (config.input_record_file != null) {
+            input_recorder = new InputRecorder(config.input_record_file,window.targetUps(),loop_strategy);
+        }
+    }
+
+    /** @return how far the frame is between the last and the next fixed update (0 to 1) */
+    private float interpolationAlpha() {
+        if (loop_strategy != BootConfiguration.LoopStrategy.FIXED_STEP) return 1f;
+        return (float) Math.clamp(time_accumulator * window.targetUps(),0.0,1.0);
+    }
+
+    /*
+     *  Render thread mode:
+     *  The main thread polls user events and updates the game. After updating, the game writes
+     *  what it needs to render into a frame snapshot that is handed over to the render thread.
+     *  The render thread owns the opengl context. It renders the latest snapshot and swaps buffers.
+     *  A blocking buffer swap (v-sync) no longer holds back event polling or the game logic.
+     */
+
+    /**
+     * Headless without an opengl context: update only, one fixed step per iteration, as fast as possible.
+     * (Deterministic simulation. IGame.render is never called, AssetLoader uploads and compiles fail immediately)
+     */
+    private void runWithoutRendering() {
+        Logger.info("running headless without opengl, rendering disabled");
+        try { game.start(window.gameResolution());
+        } catch (Exception e) {
+            Logger.error(e);
+            game.exit();
+            Disposable.dispose(input_recorder);
+            assets.dispose();
+            jobs.dispose();
+            window.terminate();
+            TraceWriter.stop();
+            return;
+        }
+        try {
+            time.start();
+            while (!window.shouldClose()) {
+                long frame_start = nanoTime();
+                long frame_allocation_mark = allocations.begin();
+                time.tick();
+                updateGame(1.0 / window.targetUps());
+                window.processUserEvents();
+                TraceWriter.complete("engine","frame",frame_start);
+                time.incrementFpsCounter();
+                profiler.endFrame();
+                allocations.endUpdates();
+                allocations.endFrame(frame_allocation_mark);
+            }
+        } catch (Exception e) {
+            Logger.error(e);
+        } finally {
+            game.exit();
+            Disposable.dispose(input_recorder);
+            assets.dispose();
+            jobs.dispose();
+            window.terminate();
+            TraceWriter.stop();
+        }
+    }
+
+    private void runWithRenderThread() {
+        frame_exchange = new FrameExchange<>(game::createFrameSnapshot);
+        CountDownLatch game_started = new CountDownLatch(1);
+        window.releaseContext();
+        render_thread_running = true;
+        render_thread = new Thread(() -> renderLoop(game_started),"render-thread");
+        render_thread.start();
+        try { game_started.await();
+            time.start();
+            long sequence = 0;
+            while (!window.shouldClose() && render_thread_running) {
+                long input_time_nanos = nanoTime();
+                if (updateGame() > 0) {
+                    FrameSnapshot snapshot = frame_exchange.writable();
+                    snapshot.sequence = ++sequence;
+                    snapshot.input_time_nanos = input_time_nanos;
+                    snapshot.time_accumulator = time_accumulator;
+                    snapshot.time_step = loop_strategy == BootConfiguration.LoopStrategy.FIXED_STEP
+                            ? 1.0 / window.targetUps() : 0.0;
+                    game.writeFrameSnapshot(snapshot);
+                    snapshot.publish_time_nanos = nanoTime();
+                    frame_exchange.publish();
+                } if (window.shouldChangeGameResolution()) {
+                    resize_requested.set(true);
+                } // Sleep until the next update is due, or wake up to user events.
+                // (Polling is not recorded as a stage here, as it includes the idle time)
+                window.waitUserEvents(1.0 / window.targetUps() - time_accumulator);
+                update_profiler.endFrame();
+            }
+        } catch (Exception e) {
+            Logger.error(e);
+        } finally {
+            render_thread_running = false;
+            try { render_thread.join();
+            } catch (InterruptedException e) {
+                Logger.error(e);
+            } Disposable.dispose(input_recorder);
+            assets.dispose();
+            jobs.dispose();
+            Logger.debug("terminating window");
+            window.terminate();
+            TraceWriter.stop();
+        }
+    }
+
+    private void renderLoop(CountDownLatch game_started) {
+        window.makeContextCurrent();
+        try { game.start(window.gameResolution());
+        } catch (Exception e) {
+            Logger.error(e);
+            render_thread_running = false;
+            game_started.countDown();
+            game.exit();
+            window.releaseContext();
+            return;
+        } game_started.countDown();
+        try {
+            long presented_sequence = 0;
+            while (render_thread_running) {
+                FrameSnapshot snapshot = frame_exchange.acquire();
+                assets.processUploads();
+                if (snapshot.sequence == 0) {
+                    // nothing published yet
+                    LockSupport.parkNanos(1_000_000L);
+                } else if (window.isMinimized()) {
+                    LockSupport.parkNanos(1_000_000_000L / window.targetUps());
+                } else {
+                    if (resize_requested.getAndSet(false)) {
+                        game.resize(window.gameResolution());
+                    } long render_start = nanoTime();
+                    long frame_allocation_mark = allocations.begin();
+                    profiler.begin(SCOPE_RENDER);
+                    game.render(snapshot,snapshot.interpolationAlpha(render_start));
+                    allocations.endRender(frame_allocation_mark);
+                    profiler.end(SCOPE_RENDER);
+                    long swap_start = nanoTime();
+                    time.recordStage(Time.Stage.RENDER,render_start,swap_start);
+                    TraceWriter.complete("engine","render",render_start,swap_start);
+                    profiler.begin(SCOPE_SWAP);
+                    window.swapRenderBuffers();
+                    profiler.end(SCOPE_SWAP);
+                    long swap_end = nanoTime();
+                    time.recordStage(Time.Stage.SWAP,swap_start,swap_end);
+                    TraceWriter.complete("engine","swap",swap_start,swap_end);
+                    if (snapshot.sequence != presented_sequence) {
+                        presented_sequence = snapshot.sequence;
+                        time.recordInputLatency(swap_end - snapshot.input_time_nanos);
+                    } if (frame_fence != null) {
+                        frame_fence.sync();
+                        long wait_end = nanoTime();
+                        time.recordGpuWait(swap_end,wait_end);
+                        TraceWriter.complete("engine","gpu wait",swap_end,wait_end);
+                    } if (!window.isVsyncEnabled()) {
+                        time.recordDeadlineError(frame_limiter.sync(window.targetFps()));
+                    } TraceWriter.complete("engine","frame",render_start);
+                    time.incrementFpsCounter();
+                    profiler.endFrame();
+                    GLState.endFrame();
+                    allocations.endFrame(frame_allocation_mark);
+                }
+            }
+        } catch (Exception e) {
+            Logger.error(e);
+        } finally {
+            render_thread_running = false;
+            Logger.debug("exiting game");
+            game.exit();
+            profiler.dispose();
+            Disposable.dispose(frame_fence);
+            window.releaseContext();
+        }
+    }
+
     public void exitMainLoop() {
         if (window != null) {
             window.signalToClose();
@@ -126,8 +498,20 @@ public class Engine {
     }
 
     public Time time() { return time; }
+    public UpsGovernor upsGovernor() { return ups_governor; }
+    /** Job system owned by the engine. Submit jobs from the thread updating the game (or from jobs) */
+    public JobSystem jobs() { return jobs; }
+    public AssetLoader assets() { return assets; }
+    /** @return null if running headless without an opengl context */
     public GLInfo glInfo() { return info; }
     public GLFWWindow window() { return window; }
+    public AllocationTracker allocations() { return allocations; }
+    /** @return the profiler of the calling thread. In render thread mode, the update and render thread have one each */
+    public Profiler profiler() { return Thread.currentThread() == render_thread ? profiler : update_profiler; }
+    /** @return the user input (or replayed input) of the current update step */
+    public InputState input() { return input; }
+    /** @return the action bindings, queried against the input of the current update step */
+    public InputBindings bindings() { return bindings; }
     public <T extends IGame> T game(Class<T> clazz) {
         if (game.getClass() != clazz) {
             throw new ClassCastException("");
@@ -136,17 +520,40 @@ public class Engine {
 
     public static final class Time {
 
+        /**
+         * Main loop stages with a frame time histogram. FRAME: the time between two frames.
+         * GPU_WAIT: waiting for the gpu in low latency mode (BootConfiguration.max_frames_in_flight)
+         */
+        public enum Stage { FRAME, UPDATE, RENDER, SWAP, POLL, GPU_WAIT }
+
         private static final double FRAME_TIME_MAX_SECONDS = 1 / 4.0; // 250 ms (15 frames of 60 fps)
+        private static final int HISTOGRAM_SLICES = 5; // of 1 second
+        private static final double LATENCY_SMOOTHING = 0.05;
+        private static final double JITTER_SMOOTHING = 0.05;
         private double counter_time_accumulator;
         private double init_time_seconds;
         private double last_frame_seconds;
         private double frame_time_seconds;
-        private int fps_counter;
+        private double frame_time_dropped;
+        private volatile long frame_count; // incremented by the rendering thread only
+        private long frame_count_sampled;
         private int ups_counter;
         private int fps;
         private int ups;
+        private volatile double input_latency_ms; // written by the rendering thread only
+        private volatile double frame_interval_ms; // smoothed time between frames (rendering thread)
+        private volatile double frame_jitter_ms;   // smoothed deviation from the frame interval (rendering thread)
+        private volatile double deadline_error_us; // smoothed frame limiter lateness (rendering thread)
+        private volatile double gpu_wait_ms;       // smoothed low latency mode wait (rendering thread)
+        private long last_frame_end_nanos;
+        private final FrameHistogram[] histograms;
 
-        Time() { /* */ }
+        Time() {
+            histograms = new FrameHistogram[Stage.values().length];
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new FrameHistogram(HISTOGRAM_SLICES,1_000_000_000L);
+            }
+        }
 
         void start() {
             init_time_seconds = systemTimeSeconds();
@@ -155,24 +562,72 @@ public class Engine {
         void tick() {
             double time_seconds = systemTimeSeconds();
             frame_time_seconds = time_seconds - last_frame_seconds;
+            frame_time_dropped = Math.max(0.0,frame_time_seconds - FRAME_TIME_MAX_SECONDS);
             frame_time_seconds = Math.min(frame_time_seconds,FRAME_TIME_MAX_SECONDS);
             last_frame_seconds = time_seconds;
             counter_time_accumulator += frame_time_seconds;
             if (counter_time_accumulator > 1.0) {
-                fps = fps_counter;
+                long frames = frame_count;
+                fps = (int)(frames - frame_count_sampled);
                 ups = ups_counter;
-                fps_counter = 0;
+                frame_count_sampled = frames;
                 ups_counter = 0;
                 counter_time_accumulator -= 1.0;
             }
         }
-        void incrementFpsCounter() { fps_counter++; }
+        @SuppressWarnings("NonAtomicOperationOnVolatileField") // single writer
+        void incrementFpsCounter() {
+            long now = nanoTime();
+            if (last_frame_end_nanos != 0) {
+                double interval_ms = (now - last_frame_end_nanos) / 1_000_000.0;
+                double mean_ms = frame_interval_ms;
+                mean_ms = mean_ms == 0 ? interval_ms : mean_ms + (interval_ms - mean_ms) * JITTER_SMOOTHING;
+                frame_interval_ms = mean_ms;
+                frame_jitter_ms += (Math.abs(interval_ms - mean_ms) - frame_jitter_ms) * JITTER_SMOOTHING;
+                recordStage(Stage.FRAME,last_frame_end_nanos,now);
+            } last_frame_end_nanos = now;
+            frame_count++;
+        }
         void incrementUpsCounter() { ups_counter++; }
-        public int framesPerSecond() { return fps > 0 ? fps : fps_counter; }
+        void recordInputLatency(long nanos) {
+            double latency_ms = nanos / 1_000_000.0;
+            double average = input_latency_ms;
+            input_latency_ms = average == 0 ? latency_ms : average + (latency_ms - average) * LATENCY_SMOOTHING;
+        }
+        void recordStage(Stage stage, long start_nanos, long end_nanos) {
+            histograms[stage.ordinal()].record(end_nanos - start_nanos,end_nanos);
+        }
+        void recordGpuWait(long start_nanos, long end_nanos) {
+            recordStage(Stage.GPU_WAIT,start_nanos,end_nanos);
+            gpu_wait_ms += ((end_nanos - start_nanos) / 1_000_000.0 - gpu_wait_ms) * LATENCY_SMOOTHING;
+        }
+        void recordDeadlineError(long nanos) {
+            deadline_error_us += (nanos / 1000.0 - deadline_error_us) * JITTER_SMOOTHING;
+        }
+        public int framesPerSecond() { return fps > 0 ? fps : (int)(frame_count - frame_count_sampled); }
         public int updatesPerSecond() { return ups > 0 ? ups : ups_counter; }
         public double frameTimeSeconds() { return frame_time_seconds; }
+        /** @return time cut from the last frame time by the 250 ms max frame time (seconds) */
+        public double frameTimeDroppedSeconds() { return frame_time_dropped; }
         public double systemTimeSeconds() { return nanoTime() / 1_000_000_000.0; }
         public double lastFrameSeconds() { return last_frame_seconds; }
         public double runTimeSeconds() { return systemTimeSeconds() - init_time_seconds; }
+        /** @return smoothed time from polling the user events to presenting the frame they produced (ms) */
+        public double inputLatencyMillis() { return input_latency_ms; }
+        /** @return smoothed time between two frames (ms) */
+        public double frameIntervalMillis() { return frame_interval_ms; }
+        /** @return smoothed mean deviation of the time between two frames from its average (ms) */
+        public double frameJitterMillis() { return frame_jitter_ms; }
+        /** @return smoothed time the frame limiter overshot its frame deadlines (µs). Only without v-sync */
+        public double frameDeadlineErrorMicros() { return deadline_error_us; }
+        /** @return smoothed time the cpu waited for the gpu per frame (ms). Only in low latency mode */
+        public double gpuWaitMillis() { return gpu_wait_ms; }
+        /**
+         * Rolling histogram (~5 seconds) of a main loop stage. Update is sampled per fixed step.
+         * In render thread mode: FRAME, RENDER and SWAP are recorded by the render thread,
+         * UPDATE by the main thread and POLL is not recorded.
+         * @return histogram of the stage durations
+         */
+        public FrameHistogram histogram(Stage stage) { return histograms[stage.ordinal()]; }
     }
 }
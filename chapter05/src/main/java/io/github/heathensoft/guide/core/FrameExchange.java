@@ -0,0 +1,43 @@
+package io.github.heathensoft.guide.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free triple buffered hand-off of frames between two threads
+ */
+public final class FrameExchange<T> {
+
+    private static final int INDEX_MASK = 0b011;
+    private static final int FRESH_BIT = 0b100;
+
+    private final Object[] slots;
+    private final AtomicInteger ready;  // index of the ready slot | FRESH_BIT if not yet consumed
+    private int write_index;            // producer thread only
+    private int read_index;             // consumer thread only
+
+    public FrameExchange(Supplier<T> supplier) {
+        slots = new Object[] { supplier.get(), supplier.get(), supplier.get() };
+        write_index = 0;
+        read_index = 1;
+        ready = new AtomicInteger(2);
+    }
+
+    /** Producer: @return the slot to write the next frame to */
+    @SuppressWarnings("unchecked")
+    public T writable() { return (T) slots[write_index]; }
+
+    /** Producer: publish the writable slot. Any frame published but not yet consumed is dropped */
+    public void publish() { write_index = ready.getAndSet(write_index | FRESH_BIT) & INDEX_MASK; }
+
+    /** Consumer: @return the most recently published frame, or the frame last returned if nothing new was published */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((ready.get() & FRESH_BIT) != 0) {
+            read_index = ready.getAndSet(read_index) & INDEX_MASK;
+        } return (T) slots[read_index];
+    }
+
+    /** Consumer: @return true if a frame has been published since the last call to acquire */
+    public boolean hasFresh() { return (ready.get() & FRESH_BIT) != 0; }
+}
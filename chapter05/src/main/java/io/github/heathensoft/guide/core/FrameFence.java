@@ -0,0 +1,48 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+import org.tinylog.Logger;
+
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * Bounds the number of frames queued ahead of the gpu (BootConfiguration.max_frames_in_flight)
+ */
+final class FrameFence implements Disposable {
+
+    static final int FRAMES_MAX = 3;
+    private static final long WAIT_TIMEOUT_NANOS = 1_000_000_000L;
+
+    private final long[] fences;
+    private int index;
+
+    /** @param frames_in_flight 1 to FRAMES_MAX */
+    FrameFence(int frames_in_flight) {
+        this.fences = new long[Math.clamp(frames_in_flight,1,FRAMES_MAX)];
+        Logger.debug("low latency mode: max {} frames in flight",fences.length);
+    }
+
+    /** Fence the frame just swapped, then wait for the fence of (frames_in_flight) frames ago */
+    void sync() {
+        fences[index] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE,0);
+        index = (index + 1) % fences.length;
+        long fence = fences[index];
+        if (fence == 0L) return; // not yet (frames_in_flight) frames
+        int status = glClientWaitSync(fence,GL_SYNC_FLUSH_COMMANDS_BIT,WAIT_TIMEOUT_NANOS);
+        if (status == GL_WAIT_FAILED) {
+            Logger.warn("low latency mode: fence wait failed");
+        } else if (status == GL_TIMEOUT_EXPIRED) {
+            Logger.warn("low latency mode: fence wait timed out");
+        } glDeleteSync(fence);
+        fences[index] = 0L;
+    }
+
+    public void dispose() {
+        for (int i = 0; i < fences.length; i++) {
+            if (fences[i] != 0L) {
+                glDeleteSync(fences[i]);
+                fences[i] = 0L;
+            }
+        }
+    }
+}
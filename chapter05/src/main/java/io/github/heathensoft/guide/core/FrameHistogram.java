@@ -0,0 +1,134 @@
+package io.github.heathensoft.guide.core;
+
+import java.util.Arrays;
+
+/**
+ * Rolling log-linear histogram of durations in microseconds
+ */
+public final class FrameHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 24;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final long[][] counts;  // [slice][bucket]
+    private final long[] totals;    // [slice] number of samples
+    private final long[] sums;      // [slice] sum of samples (µs)
+    private final long[] maximums;  // [slice] max sample (µs)
+    private final long slice_nanos;
+    private long slice_end;
+    private int slice;
+
+    /**
+     * @param slices number of time slices (at least 2)
+     * @param slice_nanos duration of each slice
+     */
+    public FrameHistogram(int slices, long slice_nanos) {
+        if (slices < 2) throw new IllegalArgumentException("histogram needs at least 2 slices");
+        this.counts = new long[slices][BUCKETS];
+        this.totals = new long[slices];
+        this.sums = new long[slices];
+        this.maximums = new long[slices];
+        this.slice_nanos = slice_nanos;
+    }
+
+    /**
+     * @param duration_nanos the sample
+     * @param now_nanos current system time (nanoTime), used to advance the time slices
+     */
+    public void record(long duration_nanos, long now_nanos) {
+        if (now_nanos - slice_end >= 0) advance(now_nanos);
+        long micros = Math.max(0, duration_nanos / 1000);
+        counts[slice][bucketIndex(micros)]++;
+        totals[slice]++;
+        sums[slice] += micros;
+        if (micros > maximums[slice]) maximums[slice] = micros;
+    }
+
+    /** Clear all samples */
+    public void reset() {
+        for (long[] bucket : counts) Arrays.fill(bucket, 0);
+        Arrays.fill(totals, 0);
+        Arrays.fill(sums, 0);
+        Arrays.fill(maximums, 0);
+        slice_end = 0;
+    }
+
+    /** @return number of samples in the window */
+    public long count() {
+        long count = 0;
+        for (long total : totals) count += total;
+        return count;
+    }
+
+    /**
+     * @param percentile 0 - 100
+     * @return the (bucket upper bound) value at the percentile in milliseconds. 0 if empty
+     */
+    public double percentileMillis(double percentile) {
+        long count = count();
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.clamp(percentile, 0.0, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            for (long[] slice_counts : counts) {
+                seen += slice_counts[bucket];
+            } if (seen >= rank) {
+                return Math.min(bucketUpperBound(bucket), maxMicros()) / 1000.0;
+            }
+        } return maxMicros() / 1000.0;
+    }
+
+    public double p50Millis() { return percentileMillis(50.0); }
+    public double p95Millis() { return percentileMillis(95.0); }
+    public double p99Millis() { return percentileMillis(99.0); }
+    public double maxMillis() { return maxMicros() / 1000.0; }
+
+    public double meanMillis() {
+        long count = count();
+        if (count == 0) return 0;
+        long sum = 0;
+        for (long s : sums) sum += s;
+        return (sum / 1000.0) / count;
+    }
+
+    private long maxMicros() {
+        long max = 0;
+        for (long m : maximums) max = Math.max(max, m);
+        return max;
+    }
+
+    private void advance(long now_nanos) {
+        if (slice_end == 0) {
+            slice_end = now_nanos + slice_nanos;
+            return;
+        } int slices = counts.length;
+        // clear every slice we skipped past, up to all of them
+        long elapsed = now_nanos - slice_end;
+        long skipped = Math.min(slices, 1 + elapsed / slice_nanos);
+        for (long i = 0; i < skipped; i++) {
+            slice = (slice + 1) % slices;
+            Arrays.fill(counts[slice], 0);
+            totals[slice] = 0;
+            sums[slice] = 0;
+            maximums[slice] = 0;
+        } slice_end += (1 + elapsed / slice_nanos) * slice_nanos;
+    }
+
+    private static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub_bucket = (int) (micros >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + sub_bucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        int sub_bucket = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub_bucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.heathensoft.guide.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Frame pacing without v-sync: parks, then spins the last stretch to the deadline
+ */
+final class FrameLimiter {
+
+    private static final long SPIN_MIN_NANOS = 20_000;      // always spin at least the last 20 µs
+    private static final long SPIN_MAX_NANOS = 4_000_000;   // never spin more than 4 ms
+    private static final double CALIBRATION_SMOOTHING = 0.1;
+
+    private long deadline;          // when the next frame is due
+    private double oversleep_nanos; // smoothed park oversleep
+    private double oversleep_peak;  // decaying peak park oversleep
+
+    /**
+     * Wait until the next frame is due.
+     * @param target_fps frames per second. Resets the limiter if zero or negative
+     * @return how far past the deadline the wait returned (ns)
+     */
+    long sync(int target_fps) {
+        if (target_fps <= 0) {
+            deadline = 0;
+            return 0;
+        } long frame_nanos = 1_000_000_000L / target_fps;
+        long now = nanoTime();
+        if (deadline == 0 || now - deadline > frame_nanos) {
+            // first frame or fell more than a frame behind. Don't try to catch up
+            deadline = now;
+        } deadline += frame_nanos;
+        long spin_nanos = spinThreshold();
+        long remaining = deadline - now;
+        while (remaining > spin_nanos) {
+            long park_nanos = remaining - spin_nanos;
+            long park_start = nanoTime();
+            LockSupport.parkNanos(park_nanos);
+            long parked = nanoTime() - park_start;
+            calibrate(Math.max(0, parked - park_nanos));
+            spin_nanos = spinThreshold();
+            remaining = deadline - nanoTime();
+        } while ((now = nanoTime()) < deadline) {
+            Thread.onSpinWait();
+        } return now - deadline;
+    }
+
+    private void calibrate(long oversleep) {
+        oversleep_nanos += (oversleep - oversleep_nanos) * CALIBRATION_SMOOTHING;
+        oversleep_peak = Math.max(oversleep, oversleep_peak * (1.0 - CALIBRATION_SMOOTHING));
+    }
+
+    private long spinThreshold() {
+        long threshold = (long) Math.max(oversleep_nanos * 2.0, oversleep_peak);
+        return Math.clamp(threshold + SPIN_MIN_NANOS, SPIN_MIN_NANOS, SPIN_MAX_NANOS);
+    }
+}
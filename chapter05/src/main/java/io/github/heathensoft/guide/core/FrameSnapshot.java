@@ -0,0 +1,29 @@
+package io.github.heathensoft.guide.core;
+
+/**
+ * State handed from the update thread to the render thread (BootConfiguration.render_thread)
+ */
+public class FrameSnapshot {
+
+    long sequence;          // 0 until the snapshot has been published
+    long input_time_nanos;  // when the user events used to produce the snapshot were polled
+    long publish_time_nanos;// when the snapshot was published
+    double time_step;       // fixed time step (seconds) when the snapshot was published. 0 if not fixed step
+    double time_accumulator;// time left in the accumulator (seconds) when the snapshot was published
+
+    /** @return the number of snapshots published up to and including this one. 0 if never published */
+    public long sequence() { return sequence; }
+
+    /** @return system time (nanoTime) of the event poll that preceded the update producing this snapshot */
+    public long inputTimeNanos() { return input_time_nanos; }
+
+    /**
+     * @param now_nanos system time (nanoTime)
+     * @return interpolation alpha (0 to 1) at the given time. Always 1 if not using the fixed step strategy
+     */
+    public float interpolationAlpha(long now_nanos) {
+        if (time_step <= 0) return 1f;
+        double elapsed = time_accumulator + (now_nanos - publish_time_nanos) / 1_000_000_000.0;
+        return (float) Math.clamp(elapsed / time_step, 0.0, 1.0);
+    }
+}
@@ -4,6 +4,7 @@ import io.github.heathensoft.guide.utils.OS;
 import org.lwjgl.glfw.*;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.system.Callback;
+import org.lwjgl.system.Configuration;
 import org.lwjgl.system.MemoryStack;
 import org.tinylog.Logger;
 
@@ -13,7 +14,6 @@ import java.util.List;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.GL_TRUE;
-import static org.lwjgl.opengl.GL11.glViewport;
 
 /**
  * Frederik Dahl 12/1/2024
@@ -22,36 +22,50 @@ public final class GLFWWindow {
 
     public static final int UPS_MIN = 30;
     public static final int UPS_MAX = 1000;
+    public static final int FPS_MAX = 1000;
 
     private List<Resolution> supported_resolutions; // resolutions supported by our game
     private Resolution game_resolution; // The current resolution
     private boolean game_resolution_changed; // found a better supported resolution for the game
     private long window;                // glfw window pointer
     private int target_ups;             // game logic updates per second
+    private volatile int target_fps;    // frame rate cap without v-sync (0 = uncapped)
     private int framebuffer_w;          // width of the window framebuffer in pixels
     private int framebuffer_h;          // height of the window framebuffer in pixels
-    private int viewport_x;             // viewport x position relative to the framebuffer in pixels
-    private int viewport_y;             // viewport y position relative to the framebuffer in pixels
-    private int viewport_w;             // width of the viewport
-    private int viewport_h;             // height of the viewport
-    private boolean minimized;          // whether the window is minimized
+    private volatile Viewport viewport = new Viewport(0,0,0,0); // replaced as a whole, read by the render thread
+    private volatile boolean minimized; // whether the window is minimized
     private boolean vsync_enabled;      // limits fps to the display frame rate
+    private boolean headless;           // offscreen, no monitor (BootConfiguration.headless)
+    private boolean gl_context = true;  // false if headless without opengl (simulation only)
+    private final InputEvents input_events = new InputEvents(); // pushed by the glfw callbacks
+    private GLFWGamepadState gamepad_state;  // off-heap, reused when polling gamepads
+    private int gamepads_connected;          // bitset by joystick id
+    private final int[] gamepad_buttons = new int[InputState.MAX_GAMEPADS];
+    private final float[] gamepad_axes = new float[InputState.MAX_GAMEPADS * InputState.GAMEPAD_AXES];
 
     public long handle() { return window; }
     public int targetUps() { return target_ups; }
+    public int targetFps() { return target_fps; }
     public int framebufferW() { return framebuffer_w; }
     public int framebufferH() { return framebuffer_h; }
-    public int viewportX() { return viewport_x; }
-    public int viewportY() { return viewport_y; }
-    public int viewportW() { return viewport_w; }
-    public int viewportH() { return viewport_h; }
+    public int viewportX() { return viewport.x; }
+    public int viewportY() { return viewport.y; }
+    public int viewportW() { return viewport.w; }
+    public int viewportH() { return viewport.h; }
     public boolean isMinimized() { return minimized; }
     public boolean isVsyncEnabled() { return vsync_enabled; }
+    public boolean isHeadless() { return headless; }
+    /** @return false if running headless without an opengl context (simulation only) */
+    public boolean hasGLContext() { return gl_context; }
 
 
     void initialize(BootConfiguration config) throws Exception {
         if (config.supported_resolutions.isEmpty()) throw new Exception("the application failed provide resolution options");
         supported_resolutions = new ArrayList<>(config.supported_resolutions);
+        if (config.headless) {
+            initializeHeadless(config);
+            return;
+        }
 
         glfwSetErrorCallback(new GLFWErrorCallback() {
             public void invoke(int error, long description) {
@@ -140,14 +154,16 @@ public final class GLFWWindow {
 
         }
         framebufferResizeEvent(framebuffer_w,framebuffer_h);
-        Logger.debug("window viewport: {},{},{}:{}", viewport_x, viewport_y, viewport_w, viewport_h);
+        Logger.debug("window viewport: {},{},{}:{}", viewport.x, viewport.y, viewport.w, viewport.h);
         initializeDisplayCallbacks();
+        initializeInputCallbacks();
         glfwMakeContextCurrent(window);
         Logger.debug("opengl-context current in thread: {}", Thread.currentThread().getName());
         glfwSetInputMode(window, GLFW_CURSOR, config.cursor_enabled ? GLFW_CURSOR_NORMAL: GLFW_CURSOR_DISABLED);
         vsync_enabled = config.vsync_enabled;
         glfwSwapInterval(vsync_enabled ? 1 : 0);
         setTargetUPS(config.target_ups);
+        setTargetFPS(config.target_fps);
         glfwShowWindow(window);
         // This line is critical for LWJGL's interoperation with GLFW's
         // OpenGL context, or any context that is managed externally.
@@ -155,6 +171,84 @@ public final class GLFWWindow {
         // creates the GLCapabilities instance and makes the OpenGL
         // bindings available for use.
         GL.createCapabilities();
+        contextCreated();
+    }
+
+    /**
+     * Headless: No monitor and no visible window. Uses GLFW's null platform (if supported)
+     * with an offscreen opengl 4.4 context created through EGL or OSMesa. (Mesa llvmpipe needs no GPU)
+     * If neither is available, falls back to a window without an opengl context (simulation only).
+     * The opengl functions are loaded through GLFW, as there might not be a system opengl library.
+     */
+    private void initializeHeadless(BootConfiguration config) throws Exception {
+        headless = true;
+        glfwSetErrorCallback(new GLFWErrorCallback() {
+            public void invoke(int error, long description) {
+                if (error != GLFW_NO_ERROR) {
+                    Logger.warn("GLFW ERROR[{}]: {}", error,GLFWErrorCallback.getDescription(description));
+                }
+            }
+        });
+        if (glfwPlatformSupported(GLFW_PLATFORM_NULL)) {
+            glfwInitHint(GLFW_PLATFORM, GLFW_PLATFORM_NULL);
+        } else Logger.warn("headless: glfw null platform not supported, using the native platform");
+        if (!glfwInit()) {
+            freeGLFWErrorCallback();
+            throw new Exception("unable to initialize glfw");
+        } Logger.debug("initialized glfw (headless)");
+        int width = config.windowed_mode_width;
+        int height = config.windowed_mode_height;
+        int[] context_apis = { GLFW_EGL_CONTEXT_API, GLFW_OSMESA_CONTEXT_API };
+        String[] context_api_names = { "EGL", "OSMesa" };
+        for (int i = 0; i < context_apis.length && window == 0L; i++) {
+            glfwDefaultWindowHints();
+            glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+            glfwWindowHint(GLFW_CLIENT_API, GLFW_OPENGL_API);
+            glfwWindowHint(GLFW_CONTEXT_CREATION_API, context_apis[i]);
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 4);
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 4);
+            glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+            window = glfwCreateWindow(width,height,config.window_title,0L,0L);
+            if (window != 0L) Logger.debug("headless: created offscreen opengl context ({})", context_api_names[i]);
+        } if (window == 0L) {
+            Logger.warn("headless: unable to create an opengl 4.4 context, running without opengl (simulation only)");
+            glfwDefaultWindowHints();
+            glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+            glfwWindowHint(GLFW_CLIENT_API, GLFW_NO_API);
+            window = glfwCreateWindow(width,height,config.window_title,0L,0L);
+            gl_context = false;
+        } if (window == 0L) {
+            glfwTerminate();
+            freeGLFWErrorCallback();
+            throw new Exception("unable to create headless glfw window");
+        } try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            glfwGetFramebufferSize(window,w,h);
+            framebuffer_w = w.get(0);
+            framebuffer_h = h.get(0);
+        } framebufferResizeEvent(framebuffer_w,framebuffer_h);
+        initializeDisplayCallbacks();
+        initializeInputCallbacks();
+        vsync_enabled = false;
+        setTargetUPS(config.target_ups);
+        setTargetFPS(config.target_fps);
+        if (gl_context) {
+            glfwMakeContextCurrent(window);
+            glfwSwapInterval(0);
+            Configuration.OPENGL_EXPLICIT_INIT.set(true);
+            GL.create(GLFW::glfwGetProcAddress);
+            GL.createCapabilities();
+            contextCreated();
+        }
+    }
+
+    /** Forget the state tracked and the limits queried on a previous context */
+    private static void contextCreated() {
+        GLState.invalidate();
+        BlockBindings.contextCreated();
+        ProgramBatch.contextCreated();
+        ComputeProgram.contextCreated();
     }
 
     public void toggleMonitors() {
@@ -203,7 +297,37 @@ public final class GLFWWindow {
      */
     void processUserEvents() {
         glfwPollEvents();
-        // todo: controller
+        pollGamepads();
+    }
+
+    /** The input events pushed by the callbacks, drained by the engine before every update */
+    InputEvents inputEvents() { return input_events; }
+
+    /**
+     * Like processUserEvents, but puts the calling thread to sleep until an event arrives or the timeout runs out.
+     * Used by the main thread in render thread mode, where it has nothing else to do between updates.
+     * @param timeout_seconds max time to wait. Will not wait if zero or negative.
+     */
+    void waitUserEvents(double timeout_seconds) {
+        if (timeout_seconds > 0) glfwWaitEventsTimeout(timeout_seconds);
+        else glfwPollEvents();
+        pollGamepads();
+    }
+
+    /**
+     * Make the opengl context current in the calling thread and make the opengl bindings available to it.
+     * The context can only be current in one thread at a time. (See releaseContext)
+     */
+    void makeContextCurrent() {
+        glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+        Logger.debug("opengl-context current in thread: {}", Thread.currentThread().getName());
+    }
+
+    /** Detach the opengl context from the calling thread, so it can be made current in another thread */
+    void releaseContext() {
+        GL.setCapabilities(null);
+        glfwMakeContextCurrent(0L);
     }
 
     /**
@@ -241,6 +365,9 @@ public final class GLFWWindow {
 
     public void setTargetUPS(int target_ups) { this.target_ups = Math.clamp(target_ups,UPS_MIN,UPS_MAX); }
 
+    /** Frame rate cap used when v-sync is disabled. 0 = uncapped */
+    public void setTargetFPS(int target_fps) { this.target_fps = Math.clamp(target_fps,0,FPS_MAX); }
+
     void signalToClose() {
         Logger.info("window signalled to close");
         glfwSetWindowShouldClose(window,true); }
@@ -251,7 +378,10 @@ public final class GLFWWindow {
     public void minimize() { glfwIconifyWindow(window); }
     public void restore() { glfwRestoreWindow(window); }
     public void toggleVsync(boolean enable) { vsync_enabled = enable; }
-    public void useWindowViewport() { glViewport(viewport_x,viewport_y,viewport_w,viewport_h); }
+    public void useWindowViewport() {
+        Viewport viewport = this.viewport;
+        GLState.viewport(viewport.x,viewport.y,viewport.w,viewport.h);
+    }
 
     @SuppressWarnings("all")
     void terminate() {
@@ -259,6 +389,9 @@ public final class GLFWWindow {
         GL.setCapabilities(null); // this IS nullable
         Logger.debug("freeing glfw display callbacks");
         freeDisplayCallbacks();
+        Logger.debug("freeing glfw input callbacks");
+        freeInputCallbacks();
+        if (gamepad_state != null) gamepad_state.free();
         Logger.debug("destroying the glfw window");
         glfwDestroyWindow(window);
         Logger.debug("terminating glfw");
@@ -281,15 +414,19 @@ public final class GLFWWindow {
 
     private void fitViewport(int framebuffer_w, int framebuffer_h) {
         float game_aspect_ratio = game_resolution.aspectRatio();
-        viewport_w = framebuffer_w;
-        viewport_h = Math.round(viewport_w / game_aspect_ratio);
+        int viewport_w = framebuffer_w;
+        int viewport_h = Math.round(viewport_w / game_aspect_ratio);
         if (viewport_h > framebuffer_h) {
             viewport_h = framebuffer_h;
             viewport_w = Math.round(viewport_h * game_aspect_ratio);
-        } viewport_x = Math.round((framebuffer_w / 2f) - (viewport_w / 2f));
-        viewport_y = Math.round((framebuffer_h / 2f) - (viewport_h / 2f));
+        } int viewport_x = Math.round((framebuffer_w / 2f) - (viewport_w / 2f));
+        int viewport_y = Math.round((framebuffer_h / 2f) - (viewport_h / 2f));
+        viewport = new Viewport(viewport_x,viewport_y,viewport_w,viewport_h);
     }
 
+    /** viewport position relative to the framebuffer and size, in pixels */
+    private record Viewport(int x, int y, int w, int h) { }
+
 
     private void initializeDisplayCallbacks() {
         glfwSetWindowIconifyCallback(window, new GLFWWindowIconifyCallback() {
@@ -319,6 +456,98 @@ public final class GLFWWindow {
         });
     }
 
+    /**
+     * Gamepads have no callbacks. The connected gamepads are polled once per processed user events,
+     * and changes are pushed as input events. One JNI call per connected gamepad.
+     */
+    private void pollGamepads() {
+        int connected = gamepads_connected;
+        while (connected != 0) {
+            int jid = Integer.numberOfTrailingZeros(connected);
+            connected &= connected - 1;
+            if (!glfwGetGamepadState(jid,gamepad_state)) continue;
+            int buttons = 0;
+            for (int i = 0; i <= GLFW_GAMEPAD_BUTTON_LAST; i++) {
+                if (gamepad_state.buttons(i) == GLFW_PRESS) buttons |= (1 << i);
+            } int changed = buttons ^ gamepad_buttons[jid];
+            while (changed != 0) {
+                int button = Integer.numberOfTrailingZeros(changed);
+                changed &= changed - 1;
+                int action = (buttons & (1 << button)) != 0 ? GLFW_PRESS : GLFW_RELEASE;
+                input_events.push(InputEvents.GAMEPAD_BUTTON,jid << 8 | button,action,0,0);
+            } gamepad_buttons[jid] = buttons;
+            for (int i = 0; i < InputState.GAMEPAD_AXES; i++) {
+                float value = gamepad_state.axes(i);
+                int index = jid * InputState.GAMEPAD_AXES + i;
+                if (value != gamepad_axes[index]) {
+                    gamepad_axes[index] = value;
+                    input_events.push(InputEvents.GAMEPAD_AXIS,jid << 8 | i,0,value,0);
+                }
+            }
+        }
+    }
+
+    private void gamepadConnected(int jid, boolean connected) {
+        if (connected) {
+            Logger.debug("gamepad connected: {} ({})", glfwGetGamepadName(jid),jid);
+            gamepads_connected |= (1 << jid);
+        } else {
+            Logger.debug("gamepad disconnected: {}", jid);
+            gamepads_connected &= ~(1 << jid);
+            gamepad_buttons[jid] = 0;
+            for (int i = 0; i < InputState.GAMEPAD_AXES; i++) gamepad_axes[jid * InputState.GAMEPAD_AXES + i] = 0f;
+        } input_events.push(InputEvents.GAMEPAD_CONNECTION,jid,connected ? 1 : 0,0,0);
+    }
+
+    private void initializeInputCallbacks() {
+        glfwSetKeyCallback(window, new GLFWKeyCallback() {
+            public void invoke(long window, int key, int scancode, int action, int mods) {
+                if (action != GLFW_REPEAT) input_events.push(InputEvents.KEY,key,action,0,0);
+            }
+        });
+        glfwSetCharCallback(window, new GLFWCharCallback() {
+            public void invoke(long window, int codepoint) {
+                input_events.push(InputEvents.CHAR,codepoint,0,0,0);
+            }
+        });
+        glfwSetMouseButtonCallback(window, new GLFWMouseButtonCallback() {
+            public void invoke(long window, int button, int action, int mods) {
+                input_events.push(InputEvents.MOUSE_BUTTON,button,action,0,0);
+            }
+        });
+        glfwSetCursorPosCallback(window, new GLFWCursorPosCallback() {
+            public void invoke(long window, double x, double y) {
+                input_events.push(InputEvents.CURSOR,0,0,x,y);
+            }
+        });
+        glfwSetScrollCallback(window, new GLFWScrollCallback() {
+            public void invoke(long window, double x, double y) {
+                input_events.push(InputEvents.SCROLL,0,0,x,y);
+            }
+        });
+        glfwSetJoystickCallback(new GLFWJoystickCallback() {
+            public void invoke(int jid, int event) {
+                if (event == GLFW_CONNECTED && glfwJoystickIsGamepad(jid)) gamepadConnected(jid,true);
+                else if (event == GLFW_DISCONNECTED && (gamepads_connected & (1 << jid)) != 0) gamepadConnected(jid,false);
+            }
+        });
+        gamepad_state = GLFWGamepadState.malloc();
+        for (int jid = 0; jid < InputState.MAX_GAMEPADS; jid++) {
+            if (glfwJoystickIsGamepad(jid)) gamepadConnected(jid,true);
+        }
+    }
+
+    private void freeInputCallbacks() {
+        List<Callback> list = new ArrayList<>();
+        list.add(glfwSetKeyCallback(window,null));
+        list.add(glfwSetCharCallback(window,null));
+        list.add(glfwSetMouseButtonCallback(window,null));
+        list.add(glfwSetCursorPosCallback(window,null));
+        list.add(glfwSetScrollCallback(window,null));
+        list.add(glfwSetJoystickCallback(null));
+        for (Callback c : list) if (c != null) c.free();
+    }
+
     private void freeDisplayCallbacks() {
         List<Callback> list = new ArrayList<>();
         list.add(glfwSetMonitorCallback(null));
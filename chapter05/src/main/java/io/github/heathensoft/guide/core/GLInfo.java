@@ -13,6 +13,9 @@ import static org.lwjgl.opengl.GL30.GL_MINOR_VERSION;
 import static org.lwjgl.opengl.GL30C.GL_INVALID_FRAMEBUFFER_OPERATION;
 import static org.lwjgl.opengl.GL31.GL_MAX_UNIFORM_BLOCK_SIZE;
 import static org.lwjgl.opengl.GL31.GL_MAX_UNIFORM_BUFFER_BINDINGS;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT;
+import static org.lwjgl.opengl.GL41.GL_NUM_PROGRAM_BINARY_FORMATS;
+import static org.lwjgl.opengl.GL43.*;
 
 /**
  * Helper class
@@ -26,8 +29,19 @@ public class GLInfo {
     public final int max_draw_buffers;
     public final int max_uniform_buffer_bindings;
     public final int max_uniform_block_size;
+    public final int uniform_buffer_offset_alignment;
     public final int max_vertex_attributes;
+    public final int max_shader_storage_buffer_bindings;
+    public final int max_shader_storage_block_size;
+    public final int shader_storage_buffer_offset_alignment;
+    public final int max_compute_work_group_invocations;
+    public final int[] max_compute_work_group_count;
+    public final int[] max_compute_work_group_size;
     public final boolean core_profile;
+    public final int program_binary_formats;
+    public final String vendor;
+    public final String renderer;
+    public final String version;
 
     protected GLInfo(long window) {
         try (MemoryStack stack = MemoryStack.stackPush()){
@@ -44,10 +58,33 @@ public class GLInfo {
             max_uniform_buffer_bindings = buffer.get(0);
             glGetIntegerv(GL_MAX_UNIFORM_BLOCK_SIZE, buffer);
             max_uniform_block_size = buffer.get(0);
+            glGetIntegerv(GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT, buffer);
+            uniform_buffer_offset_alignment = buffer.get(0);
             glGetIntegerv(GL_MAX_VERTEX_ATTRIBS, buffer);
             max_vertex_attributes = buffer.get(0);
+            glGetIntegerv(GL_MAX_SHADER_STORAGE_BUFFER_BINDINGS, buffer);
+            max_shader_storage_buffer_bindings = buffer.get(0);
+            glGetIntegerv(GL_MAX_SHADER_STORAGE_BLOCK_SIZE, buffer);
+            max_shader_storage_block_size = buffer.get(0);
+            glGetIntegerv(GL_SHADER_STORAGE_BUFFER_OFFSET_ALIGNMENT, buffer);
+            shader_storage_buffer_offset_alignment = buffer.get(0);
+            glGetIntegerv(GL_MAX_COMPUTE_WORK_GROUP_INVOCATIONS, buffer);
+            max_compute_work_group_invocations = buffer.get(0);
+            max_compute_work_group_count = new int[3];
+            max_compute_work_group_size = new int[3];
+            for (int i = 0; i < 3; i++) {
+                glGetIntegeri_v(GL_MAX_COMPUTE_WORK_GROUP_COUNT, i, buffer);
+                max_compute_work_group_count[i] = buffer.get(0);
+                glGetIntegeri_v(GL_MAX_COMPUTE_WORK_GROUP_SIZE, i, buffer);
+                max_compute_work_group_size[i] = buffer.get(0);
+            }
             core_profile = glfwGetWindowAttrib(window,GLFW_OPENGL_PROFILE) == GLFW_OPENGL_CORE_PROFILE;
-        }
+            glGetIntegerv(GL_NUM_PROGRAM_BINARY_FORMATS, buffer);
+            program_binary_formats = buffer.get(0);
+        } vendor = String.valueOf(glGetString(GL_VENDOR));
+        renderer = String.valueOf(glGetString(GL_RENDERER));
+        version = String.valueOf(glGetString(GL_VERSION));
+        Logger.debug("opengl driver: {}, {}, {}",vendor,renderer,version);
         Logger.debug("opengl client limitations:");
         Logger.debug("opengl version: {}.{}",version_major,version_minor);
         Logger.debug("opengl core profile: {}",core_profile);
@@ -55,13 +92,21 @@ public class GLInfo {
         Logger.debug("opengl max shader output draw buffers: {}", max_draw_buffers);
         Logger.debug("opengl max uniform buffer bindings: {}", max_uniform_buffer_bindings);
         Logger.debug("opengl max uniform buffer block size: {} Bytes", max_uniform_block_size);
+        Logger.debug("opengl uniform buffer offset alignment: {} Bytes", uniform_buffer_offset_alignment);
         Logger.debug("opengl max vertex attributes: {}", max_vertex_attributes);
+        Logger.debug("opengl max shader storage buffer bindings: {}", max_shader_storage_buffer_bindings);
+        Logger.debug("opengl max shader storage block size: {} Bytes", max_shader_storage_block_size);
+        Logger.debug("opengl shader storage buffer offset alignment: {} Bytes", shader_storage_buffer_offset_alignment);
+        Logger.debug("opengl max compute work group count: {} {} {}", max_compute_work_group_count[0],
+                max_compute_work_group_count[1], max_compute_work_group_count[2]);
+        Logger.debug("opengl max compute work group size: {} {} {} ({} invocations)", max_compute_work_group_size[0],
+                max_compute_work_group_size[1], max_compute_work_group_size[2], max_compute_work_group_invocations);
+        Logger.debug("opengl program binary formats: {}", program_binary_formats);
     }
 
     public String shaderVersionString() {
         String string = "#version " + version_major + version_minor + 0;
-        if (core_profile) string += " core\n";
-        return string;
+        return core_profile ? string + " core\n" : string + "\n";
     }
 
     public static void checkError() {
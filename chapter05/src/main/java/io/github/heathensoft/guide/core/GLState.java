@@ -0,0 +1,347 @@
+package io.github.heathensoft.guide.core;
+
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL44.*;
+
+/**
+ * Shadow of the opengl state, skips redundant state calls
+ */
+public final class GLState {
+
+    private static final int UNKNOWN = -1;
+
+    // buffer targets
+    private static final int[] BUFFER_TARGETS = {
+            GL_ARRAY_BUFFER, GL_ELEMENT_ARRAY_BUFFER, GL_UNIFORM_BUFFER, GL_SHADER_STORAGE_BUFFER,
+            GL_DRAW_INDIRECT_BUFFER, GL_DISPATCH_INDIRECT_BUFFER, GL_PIXEL_UNPACK_BUFFER, GL_PIXEL_PACK_BUFFER,
+            GL_COPY_READ_BUFFER, GL_COPY_WRITE_BUFFER, GL_TEXTURE_BUFFER, GL_ATOMIC_COUNTER_BUFFER,
+            GL_TRANSFORM_FEEDBACK_BUFFER, GL_QUERY_BUFFER };
+    private static final int ELEMENT_ARRAY = 1;
+    // texture targets
+    private static final int[] TEXTURE_TARGETS = {
+            GL_TEXTURE_2D, GL_TEXTURE_2D_ARRAY, GL_TEXTURE_3D, GL_TEXTURE_CUBE_MAP, GL_TEXTURE_1D,
+            GL_TEXTURE_1D_ARRAY, GL_TEXTURE_CUBE_MAP_ARRAY, GL_TEXTURE_2D_MULTISAMPLE,
+            GL_TEXTURE_2D_MULTISAMPLE_ARRAY, GL_TEXTURE_BUFFER, GL_TEXTURE_RECTANGLE };
+    // capabilities
+    private static final int[] CAPABILITIES = {
+            GL_BLEND, GL_DEPTH_TEST, GL_CULL_FACE, GL_SCISSOR_TEST, GL_STENCIL_TEST, GL_MULTISAMPLE,
+            GL_FRAMEBUFFER_SRGB, GL_PROGRAM_POINT_SIZE, GL_RASTERIZER_DISCARD, GL_POLYGON_OFFSET_FILL,
+            GL_DEPTH_CLAMP, GL_PRIMITIVE_RESTART, GL_PRIMITIVE_RESTART_FIXED_INDEX, GL_TEXTURE_CUBE_MAP_SEAMLESS,
+            GL_LINE_SMOOTH, GL_SAMPLE_ALPHA_TO_COVERAGE, GL_DEBUG_OUTPUT, GL_DEBUG_OUTPUT_SYNCHRONOUS };
+
+    private static int program;
+    private static int vertex_array;
+    private static int draw_framebuffer;
+    private static int read_framebuffer;
+    private static int active_texture;
+    private static final int[] buffers = new int[BUFFER_TARGETS.length];
+    private static final int[] capabilities = new int[CAPABILITIES.length]; // 0, 1 or UNKNOWN
+    private static int[] textures = new int[0];           // [unit * TEXTURE_TARGETS.length + target]
+    private static int[] uniform_ranges = new int[0];     // [binding * 3]: buffer, offset, size (-1 size: base)
+    private static int[] storage_ranges = new int[0];
+    private static int viewport_x, viewport_y, viewport_w, viewport_h;
+    private static int blend_src_rgb, blend_dst_rgb, blend_src_alpha, blend_dst_alpha;
+    private static int blend_equation_rgb, blend_equation_alpha;
+    private static int depth_func;
+    private static int depth_mask; // 0, 1 or UNKNOWN
+    private static int cull_face;
+    private static int front_face;
+
+    private static int issued;
+    private static int skipped;
+    private static int issued_last_frame;
+    private static int skipped_last_frame;
+
+    static { invalidate(); }
+
+    private GLState() { }
+
+    /** Forget all state. The next call of every kind is issued */
+    public static void invalidate() {
+        program = vertex_array = draw_framebuffer = read_framebuffer = active_texture = UNKNOWN;
+        Arrays.fill(buffers,UNKNOWN);
+        Arrays.fill(capabilities,UNKNOWN);
+        Arrays.fill(textures,UNKNOWN);
+        Arrays.fill(uniform_ranges,UNKNOWN);
+        Arrays.fill(storage_ranges,UNKNOWN);
+        viewport_x = viewport_y = viewport_w = viewport_h = UNKNOWN;
+        blend_src_rgb = blend_dst_rgb = blend_src_alpha = blend_dst_alpha = UNKNOWN;
+        blend_equation_rgb = blend_equation_alpha = UNKNOWN;
+        depth_func = depth_mask = cull_face = front_face = UNKNOWN;
+    }
+
+    // Program and vertex array
+
+    public static void useProgram(int handle) {
+        if (program == handle) { skipped++; return; }
+        glUseProgram(handle);
+        program = handle;
+        issued++;
+    }
+
+    /** @return the program in use, 0 for none, -1 if unknown */
+    public static int program() { return program; }
+
+    public static void bindVertexArray(int handle) {
+        if (vertex_array == handle) { skipped++; return; }
+        glBindVertexArray(handle);
+        vertex_array = handle;
+        buffers[ELEMENT_ARRAY] = UNKNOWN;
+        issued++;
+    }
+
+    public static int vertexArray() { return vertex_array; }
+
+    public static void deleteVertexArray(int handle) {
+        if (vertex_array == handle) vertex_array = 0;
+        glDeleteVertexArrays(handle);
+    }
+
+    // Buffers
+
+    public static void bindBuffer(int target, int handle) {
+        int index = bufferTarget(target);
+        if (index >= 0 && buffers[index] == handle) { skipped++; return; }
+        glBindBuffer(target,handle);
+        if (index >= 0) buffers[index] = handle;
+        issued++;
+    }
+
+    /** @return buffer bound to the target, 0 for none, -1 if unknown */
+    public static int buffer(int target) {
+        int index = bufferTarget(target);
+        return index < 0 ? UNKNOWN : buffers[index];
+    }
+
+    /** Indexed binding (GL_UNIFORM_BUFFER or GL_SHADER_STORAGE_BUFFER). Also binds the generic target */
+    public static void bindBufferRange(int target, int binding, int handle, long offset, long size) {
+        int[] ranges = indexedRanges(target,binding);
+        if (ranges != null) {
+            int i = binding * 3;
+            if (ranges[i] == handle && ranges[i + 1] == (int) offset && ranges[i + 2] == (int) size) { skipped++; return; }
+            ranges[i] = handle;
+            ranges[i + 1] = (int) offset;
+            ranges[i + 2] = (int) size;
+        } glBindBufferRange(target,binding,handle,offset,size);
+        trackGenericBinding(target,handle);
+        issued++;
+    }
+
+    /** Indexed binding of the whole buffer (GL_UNIFORM_BUFFER or GL_SHADER_STORAGE_BUFFER). Also binds the generic target */
+    public static void bindBufferBase(int target, int binding, int handle) {
+        int[] ranges = indexedRanges(target,binding);
+        if (ranges != null) {
+            int i = binding * 3;
+            if (ranges[i] == handle && ranges[i + 1] == 0 && ranges[i + 2] == UNKNOWN) { skipped++; return; }
+            ranges[i] = handle;
+            ranges[i + 1] = 0;
+            ranges[i + 2] = UNKNOWN;
+        } glBindBufferBase(target,binding,handle);
+        trackGenericBinding(target,handle);
+        issued++;
+    }
+
+    /** Delete the buffer. Its bindings are forgotten (opengl unbinds them) */
+    public static void deleteBuffer(int handle) {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] == handle) buffers[i] = 0;
+        } forgetRanges(uniform_ranges,handle);
+        forgetRanges(storage_ranges,handle);
+        glDeleteBuffers(handle);
+    }
+
+    // Textures
+
+    /** Bind the texture to the unit (glActiveTexture + glBindTexture) */
+    public static void bindTexture(int unit, int target, int handle) {
+        int index = textureTarget(target);
+        if (index < 0) {
+            activeTexture(unit);
+            glBindTexture(target,handle);
+            issued++;
+            return;
+        } int slot = unit * TEXTURE_TARGETS.length + index;
+        if (slot >= textures.length) {
+            int length = textures.length;
+            textures = Arrays.copyOf(textures,Math.max(slot + 1,length * 2));
+            Arrays.fill(textures,length,textures.length,UNKNOWN);
+        } if (textures[slot] == handle) { skipped++; return; }
+        activeTexture(unit);
+        glBindTexture(target,handle);
+        textures[slot] = handle;
+        issued++;
+    }
+
+    /** Delete the texture. Its bindings are forgotten (opengl unbinds them) */
+    public static void deleteTexture(int handle) {
+        for (int i = 0; i < textures.length; i++) {
+            if (textures[i] == handle) textures[i] = 0;
+        } glDeleteTextures(handle);
+    }
+
+    private static void activeTexture(int unit) {
+        if (active_texture == unit) return;
+        glActiveTexture(GL_TEXTURE0 + unit);
+        active_texture = unit;
+        issued++;
+    }
+
+    // Framebuffers
+
+    /** GL_FRAMEBUFFER binds both draw and read */
+    public static void bindFramebuffer(int target, int handle) {
+        boolean draw = target == GL_FRAMEBUFFER || target == GL_DRAW_FRAMEBUFFER;
+        boolean read = target == GL_FRAMEBUFFER || target == GL_READ_FRAMEBUFFER;
+        if ((!draw || draw_framebuffer == handle) && (!read || read_framebuffer == handle)) { skipped++; return; }
+        glBindFramebuffer(target,handle);
+        if (draw) draw_framebuffer = handle;
+        if (read) read_framebuffer = handle;
+        issued++;
+    }
+
+    public static int drawFramebuffer() { return draw_framebuffer; }
+    public static int readFramebuffer() { return read_framebuffer; }
+
+    /** Delete the framebuffer. Its bindings are forgotten (opengl binds the default framebuffer) */
+    public static void deleteFramebuffer(int handle) {
+        if (draw_framebuffer == handle) draw_framebuffer = 0;
+        if (read_framebuffer == handle) read_framebuffer = 0;
+        glDeleteFramebuffers(handle);
+    }
+
+    public static void viewport(int x, int y, int w, int h) {
+        if (viewport_x == x && viewport_y == y && viewport_w == w && viewport_h == h) { skipped++; return; }
+        glViewport(x,y,w,h);
+        viewport_x = x;
+        viewport_y = y;
+        viewport_w = w;
+        viewport_h = h;
+        issued++;
+    }
+
+    // Fixed function
+
+    public static void enable(int capability) { setCapability(capability,true); }
+    public static void disable(int capability) { setCapability(capability,false); }
+
+    public static void setCapability(int capability, boolean enabled) {
+        int index = capability(capability);
+        int value = enabled ? 1 : 0;
+        if (index >= 0 && capabilities[index] == value) { skipped++; return; }
+        if (enabled) glEnable(capability);
+        else glDisable(capability);
+        if (index >= 0) capabilities[index] = value;
+        issued++;
+    }
+
+    public static void blendFunc(int src, int dst) { blendFuncSeparate(src,dst,src,dst); }
+
+    public static void blendFuncSeparate(int src_rgb, int dst_rgb, int src_alpha, int dst_alpha) {
+        if (blend_src_rgb == src_rgb && blend_dst_rgb == dst_rgb && blend_src_alpha == src_alpha && blend_dst_alpha == dst_alpha) {
+            skipped++;
+            return;
+        } glBlendFuncSeparate(src_rgb,dst_rgb,src_alpha,dst_alpha);
+        blend_src_rgb = src_rgb;
+        blend_dst_rgb = dst_rgb;
+        blend_src_alpha = src_alpha;
+        blend_dst_alpha = dst_alpha;
+        issued++;
+    }
+
+    public static void blendEquation(int mode) { blendEquationSeparate(mode,mode); }
+
+    public static void blendEquationSeparate(int mode_rgb, int mode_alpha) {
+        if (blend_equation_rgb == mode_rgb && blend_equation_alpha == mode_alpha) { skipped++; return; }
+        glBlendEquationSeparate(mode_rgb,mode_alpha);
+        blend_equation_rgb = mode_rgb;
+        blend_equation_alpha = mode_alpha;
+        issued++;
+    }
+
+    public static void depthFunc(int func) {
+        if (depth_func == func) { skipped++; return; }
+        glDepthFunc(func);
+        depth_func = func;
+        issued++;
+    }
+
+    public static void depthMask(boolean write) {
+        int value = write ? 1 : 0;
+        if (depth_mask == value) { skipped++; return; }
+        glDepthMask(write);
+        depth_mask = value;
+        issued++;
+    }
+
+    public static void cullFace(int mode) {
+        if (cull_face == mode) { skipped++; return; }
+        glCullFace(mode);
+        cull_face = mode;
+        issued++;
+    }
+
+    public static void frontFace(int mode) {
+        if (front_face == mode) { skipped++; return; }
+        glFrontFace(mode);
+        front_face = mode;
+        issued++;
+    }
+
+    // Counters
+
+    /** @return state calls issued to the driver in the last frame */
+    public static int issuedLastFrame() { return issued_last_frame; }
+
+    /** @return redundant state calls skipped in the last frame */
+    public static int skippedLastFrame() { return skipped_last_frame; }
+
+    static void endFrame() {
+        issued_last_frame = issued;
+        skipped_last_frame = skipped;
+        issued = skipped = 0;
+    }
+
+    private static void trackGenericBinding(int target, int handle) {
+        int index = bufferTarget(target);
+        if (index >= 0) buffers[index] = handle;
+    }
+
+    /** @return the range table of the target, grown to fit the binding. null if the target is not tracked */
+    private static int[] indexedRanges(int target, int binding) {
+        if (target == GL_UNIFORM_BUFFER) {
+            if (binding * 3 >= uniform_ranges.length) uniform_ranges = growRanges(uniform_ranges,binding);
+            return uniform_ranges;
+        } if (target == GL_SHADER_STORAGE_BUFFER) {
+            if (binding * 3 >= storage_ranges.length) storage_ranges = growRanges(storage_ranges,binding);
+            return storage_ranges;
+        } return null;
+    }
+
+    private static int[] growRanges(int[] ranges, int binding) {
+        int length = ranges.length;
+        int[] grown = Arrays.copyOf(ranges,Math.max((binding + 1) * 3,length * 2));
+        Arrays.fill(grown,length,grown.length,UNKNOWN);
+        return grown;
+    }
+
+    private static void forgetRanges(int[] ranges, int handle) {
+        for (int i = 0; i < ranges.length; i += 3) {
+            if (ranges[i] == handle) {
+                ranges[i] = 0;
+                ranges[i + 1] = 0;
+                ranges[i + 2] = UNKNOWN;
+            }
+        }
+    }
+
+    private static int bufferTarget(int target) { return indexOf(BUFFER_TARGETS,target); }
+    private static int textureTarget(int target) { return indexOf(TEXTURE_TARGETS,target); }
+    private static int capability(int capability) { return indexOf(CAPABILITIES,capability); }
+
+    private static int indexOf(int[] enums, int value) {
+        for (int i = 0; i < enums.length; i++) {
+            if (enums[i] == value) return i;
+        } return -1;
+    }
+}
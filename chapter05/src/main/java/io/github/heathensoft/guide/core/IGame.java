@@ -15,5 +15,36 @@ public interface IGame {
 
     void render();
 
+    /**
+     * Called by the engine instead of render(). Override to interpolate between the previous
+     * and the current game state: state = previous * (1 - alpha) + current * alpha
+     * @param alpha how far the frame is between the last and the next update (0 to 1)
+     */
+    default void render(float alpha) { render(); }
+
     void exit();
+
+    /*
+     *  Render thread mode (BootConfiguration.render_thread):
+     *  start, resize, render and exit are called on the render thread (opengl context),
+     *  update and writeFrameSnapshot on the main thread (user events).
+     *  The only state that should be shared between the two is the frame snapshot.
+     *  Games that do not override render(FrameSnapshot,float) run without a render thread.
+     */
+
+    /** Render thread mode: create one of the snapshots exchanged between the update and render thread */
+    default FrameSnapshot createFrameSnapshot() { return new FrameSnapshot(); }
+
+    /** Render thread mode: called on the main thread after updating. Copy what is needed to render the frame */
+    default void writeFrameSnapshot(FrameSnapshot snapshot) { }
+
+    /**
+     * Render thread mode: render the most recently published snapshot.
+     * To interpolate, write both the previous and the current state to the snapshot.
+     * Render only from the snapshot, the game state is updated concurrently on the main thread.
+     * @param alpha how far the frame is between the snapshot update and the next (0 to 1)
+     */
+    default void render(FrameSnapshot snapshot, float alpha) {
+        throw new UnsupportedOperationException("render thread mode: render(FrameSnapshot,float) is not implemented");
+    }
 }
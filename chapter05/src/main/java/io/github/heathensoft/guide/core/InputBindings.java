@@ -0,0 +1,126 @@
+package io.github.heathensoft.guide.core;
+
+import java.util.Arrays;
+
+/**
+ * Game actions bound to keys, mouse buttons and gamepad buttons, queried by id
+ */
+public final class InputBindings {
+
+    public static final int MAX_BINDINGS = 4; // per action
+
+    private static final int KEY = 1;
+    private static final int MOUSE_BUTTON = 2;
+    private static final int GAMEPAD_BUTTON = 3;
+
+    /** @return input code of a keyboard key (GLFW_KEY_*) */
+    public static int key(int key) { return KEY << 16 | (key & 0xFFFF); }
+    /** @return input code of a mouse button (GLFW_MOUSE_BUTTON_*) */
+    public static int mouseButton(int button) { return MOUSE_BUTTON << 16 | (button & 0xFFFF); }
+    /** @return input code of a button on any gamepad (GLFW_GAMEPAD_BUTTON_*) */
+    public static int gamepadButton(int button) { return GAMEPAD_BUTTON << 16 | (button & 0xFFFF); }
+
+    private static final int DOWN = 0;
+    private static final int PRESSED = 1;
+    private static final int RELEASED = 2;
+
+    private final InputState input;
+    private String[] names = new String[0];
+    private int[] bindings = new int[0];    // [action * MAX_BINDINGS + i]
+    private int[] binding_counts = new int[0];
+
+    InputBindings(InputState input) { this.input = input; }
+
+    /**
+     * Register an action. (Allocates, do this up front)
+     * @return the action id. The same name always returns the same id
+     */
+    public int action(String name) {
+        if (name == null) throw new IllegalArgumentException("null arg action name");
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        } int action = names.length;
+        names = Arrays.copyOf(names,action + 1);
+        bindings = Arrays.copyOf(bindings,(action + 1) * MAX_BINDINGS);
+        binding_counts = Arrays.copyOf(binding_counts,action + 1);
+        names[action] = name;
+        return action;
+    }
+
+    /**
+     * Register an action and bind inputs to it
+     * @param inputs input codes (key, mouseButton, gamepadButton)
+     * @return the action id
+     */
+    public int action(String name, int ...inputs) {
+        int action = action(name);
+        for (int code : inputs) bind(action,code);
+        return action;
+    }
+
+    /** Bind an input to the action. (At most MAX_BINDINGS per action) */
+    public void bind(int action, int input_code) {
+        int count = binding_counts[action];
+        int offset = action * MAX_BINDINGS;
+        for (int i = 0; i < count; i++) {
+            if (bindings[offset + i] == input_code) return;
+        } if (count == MAX_BINDINGS) {
+            throw new IllegalStateException("input bindings: action \"" + names[action] + "\" has max bindings");
+        } bindings[offset + count] = input_code;
+        binding_counts[action] = count + 1;
+    }
+
+    /** Remove every input bound to the action */
+    public void unbind(int action) { binding_counts[action] = 0; }
+
+    public int actionCount() { return names.length; }
+    public String actionName(int action) { return names[action]; }
+
+    public boolean isDown(int action) { return query(action,DOWN); }
+    public boolean isPressed(int action) { return query(action,PRESSED); }
+    public boolean isReleased(int action) { return query(action,RELEASED); }
+
+    private boolean query(int action, int query) {
+        int offset = action * MAX_BINDINGS;
+        int count = binding_counts[action];
+        for (int i = 0; i < count; i++) {
+            int code = bindings[offset + i];
+            int value = (short) (code & 0xFFFF);
+            boolean result = switch (code >>> 16) {
+                case KEY -> keyQuery(value,query);
+                case MOUSE_BUTTON -> mouseQuery(value,query);
+                case GAMEPAD_BUTTON -> gamepadQuery(value,query);
+                default -> false;
+            }; if (result) return true;
+        } return false;
+    }
+
+    private boolean keyQuery(int key, int query) {
+        return switch (query) {
+            case DOWN -> input.isKeyDown(key);
+            case PRESSED -> input.isKeyPressed(key);
+            default -> input.isKeyReleased(key);
+        };
+    }
+
+    private boolean mouseQuery(int button, int query) {
+        return switch (query) {
+            case DOWN -> input.isMouseButtonDown(button);
+            case PRESSED -> input.isMouseButtonPressed(button);
+            default -> input.isMouseButtonReleased(button);
+        };
+    }
+
+    private boolean gamepadQuery(int button, int query) {
+        int connected = input.gamepadsConnected();
+        while (connected != 0) {
+            int jid = Integer.numberOfTrailingZeros(connected);
+            connected &= connected - 1;
+            boolean result = switch (query) {
+                case DOWN -> input.isGamepadButtonDown(jid,button);
+                case PRESSED -> input.isGamepadButtonPressed(jid,button);
+                default -> input.isGamepadButtonReleased(jid,button);
+            }; if (result) return true;
+        } return false;
+    }
+}
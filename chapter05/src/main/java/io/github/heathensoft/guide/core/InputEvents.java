@@ -0,0 +1,68 @@
+package io.github.heathensoft.guide.core;
+
+import org.tinylog.Logger;
+
+/**
+ * Single producer, single consumer ring buffer of input events
+ */
+final class InputEvents {
+
+    static final int KEY = 1;
+    static final int MOUSE_BUTTON = 2;
+    static final int CURSOR = 3;
+    static final int SCROLL = 4;
+    static final int CHAR = 5;
+    static final int GAMEPAD_BUTTON = 6;
+    static final int GAMEPAD_AXIS = 7;
+    static final int GAMEPAD_CONNECTION = 8;
+
+    private static final int CAPACITY = 4096; // power of two
+    private static final int MASK = CAPACITY - 1;
+
+    private final int[] types = new int[CAPACITY];
+    private final int[] a = new int[CAPACITY];
+    private final int[] b = new int[CAPACITY];
+    private final double[] x = new double[CAPACITY];
+    private final double[] y = new double[CAPACITY];
+    private volatile long head; // written by the producer
+    private volatile long tail; // written by the consumer
+    private long dropped;       // producer
+
+    /** producer */
+    void push(int type, int a, int b, double x, double y) {
+        long h = head;
+        if (h - tail == CAPACITY) {
+            if (dropped++ == 0) Logger.warn("input events: ring buffer full, dropping events");
+            return;
+        } int slot = (int) (h & MASK);
+        this.types[slot] = type;
+        this.a[slot] = a;
+        this.b[slot] = b;
+        this.x[slot] = x;
+        this.y[slot] = y;
+        head = h + 1; // publish
+    }
+
+    /**
+     * consumer: apply every pushed event to the input state
+     * @param recorder records the events if not null
+     */
+    void drainTo(InputState state, InputRecorder recorder) {
+        long t = tail;
+        long h = head;
+        while (t != h) {
+            int slot = (int) (t & MASK);
+            state.apply(types[slot],a[slot],b[slot],x[slot],y[slot]);
+            if (recorder != null) recorder.event(types[slot],a[slot],b[slot],x[slot],y[slot]);
+            t++;
+        } tail = t;
+    }
+
+    /** consumer: drop every pushed event (live input is ignored while replaying) */
+    void discard() {
+        tail = head;
+    }
+
+    /** @return number of events dropped because the ring buffer was full */
+    long dropped() { return dropped; }
+}
@@ -0,0 +1,105 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+import io.github.heathensoft.guide.utils.ExternalFile;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Records the input and delta time of every update step (BootConfiguration.input_record_file)
+ */
+public final class InputRecorder implements Disposable {
+
+    // Format (big endian): header [magic:int][version:short][target_ups:int][loop_strategy:byte]
+    // followed by one record per update step: [flags:byte], DELTA [delta_time:double] if it changed since
+    // the previous step, EVENTS [count:short] followed by the events folded into the step.
+    // Event: [type:byte] KEY [key:short][action:byte], MOUSE_BUTTON [button:byte][action:byte],
+    // CURSOR / SCROLL [x:double][y:double], CHAR [codepoint:int], GAMEPAD_BUTTON [jid << 8 | button:short][action:byte],
+    // GAMEPAD_AXIS [jid << 8 | axis:short][value:float], GAMEPAD_CONNECTION [jid:byte][connected:byte].
+    // Without user input a step is a single byte.
+    static final int MAGIC = 0x494E5054; // "INPT"
+    static final short VERSION = 2;
+    static final int FLAG_DELTA = 0x01;
+    static final int FLAG_EVENTS = 0x02;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int EVENT_MAX_BYTES = 17;
+    private static final int STEP_MAX_EVENTS = 0xFFFF;
+
+    private final ExternalFile file;
+    private final ByteBuffer buffer;
+    private final ByteBuffer step_events;
+    private double previous_delta;
+    private int event_count;
+    private int steps;
+    private boolean failed;
+
+    InputRecorder(String path, int target_ups, BootConfiguration.LoopStrategy loop_strategy) throws IOException {
+        this.file = new ExternalFile(path);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.step_events = ByteBuffer.allocate(BUFFER_SIZE / 2);
+        this.previous_delta = Double.NaN; // first step always writes the delta
+        buffer.putInt(MAGIC).putShort(VERSION).putInt(target_ups).put((byte) loop_strategy.ordinal());
+        file.write(buffer.flip()); // truncate and write header
+        buffer.clear();
+        Logger.info("recording input to: {}", path);
+    }
+
+    /** Record an event folded into the current step. (See InputEvents) */
+    void event(int type, int a, int b, double x, double y) {
+        if (failed) return;
+        if (step_events.remaining() < EVENT_MAX_BYTES || event_count == STEP_MAX_EVENTS) {
+            Logger.warn("input recording: too many events in one update step, event dropped");
+            return;
+        } step_events.put((byte) type);
+        switch (type) {
+            case InputEvents.KEY -> step_events.putShort((short) a).put((byte) b);
+            case InputEvents.MOUSE_BUTTON -> step_events.put((byte) a).put((byte) b);
+            case InputEvents.CURSOR, InputEvents.SCROLL -> step_events.putDouble(x).putDouble(y);
+            case InputEvents.CHAR -> step_events.putInt(a);
+            case InputEvents.GAMEPAD_BUTTON -> step_events.putShort((short) a).put((byte) b);
+            case InputEvents.GAMEPAD_AXIS -> step_events.putShort((short) a).putFloat((float) x);
+            case InputEvents.GAMEPAD_CONNECTION -> step_events.put((byte) a).put((byte) b);
+        } event_count++;
+    }
+
+    /** End the current step: write it with its delta time and events */
+    void endStep(double delta_time) {
+        if (failed) return;
+        int flags = 0;
+        boolean delta_changed = Double.doubleToLongBits(delta_time) != Double.doubleToLongBits(previous_delta);
+        if (delta_changed) flags |= FLAG_DELTA;
+        if (event_count > 0) flags |= FLAG_EVENTS;
+        if (buffer.remaining() < 1 + 8 + 2 + step_events.position()) flush();
+        buffer.put((byte) flags);
+        if (delta_changed) {
+            buffer.putDouble(delta_time);
+            previous_delta = delta_time;
+        } if (event_count > 0) {
+            buffer.putShort((short) event_count);
+            buffer.put(step_events.flip());
+        } step_events.clear();
+        event_count = 0;
+        steps++;
+    }
+
+    /** @return number of update steps recorded */
+    public int steps() { return steps; }
+
+    public void dispose() {
+        flush();
+        if (!failed) Logger.info("recorded input of {} update steps", steps);
+    }
+
+    private void flush() {
+        if (!failed && buffer.position() > 0) {
+            try { file.append(buffer.flip());
+            } catch (IOException e) {
+                Logger.error(e,"input recording failed, recording stopped");
+                failed = true;
+            }
+        } buffer.clear();
+    }
+}
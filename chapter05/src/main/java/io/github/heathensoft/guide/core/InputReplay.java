@@ -0,0 +1,82 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.ExternalFile;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import static io.github.heathensoft.guide.core.InputRecorder.*;
+
+/**
+ * Plays back a file written by InputRecorder (BootConfiguration.input_replay_file)
+ */
+public final class InputReplay {
+
+    private final ByteBuffer buffer;
+    private final int recorded_ups;
+    private final BootConfiguration.LoopStrategy recorded_strategy;
+    private double delta_time;
+    private int steps;
+
+    InputReplay(String path) throws IOException {
+        this.buffer = new ExternalFile(path).readToBuffer();
+        if (buffer.remaining() < 11 || buffer.getInt() != MAGIC) {
+            throw new IOException("not an input recording: " + path);
+        } short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported input recording version: " + version);
+        } recorded_ups = buffer.getInt();
+        BootConfiguration.LoopStrategy[] strategies = BootConfiguration.LoopStrategy.values();
+        recorded_strategy = strategies[Math.clamp(buffer.get(),0,strategies.length - 1)];
+        Logger.info("replaying input from: {}", path);
+    }
+
+    /** @return the target ups the recording was made with */
+    public int recordedUps() { return recorded_ups; }
+
+    /** @return the loop strategy the recording was made with */
+    public BootConfiguration.LoopStrategy recordedStrategy() { return recorded_strategy; }
+
+    /** @return number of update steps replayed */
+    public int steps() { return steps; }
+
+    /** @return the delta time of the step read by the last call to next */
+    double deltaTime() { return delta_time; }
+
+    /**
+     * Read the next update step and fold its events into the input state
+     * @param dst the input state of the step (beginStep already called)
+     * @return false if the recording has ended
+     */
+    boolean next(InputState dst) {
+        if (!buffer.hasRemaining()) return false;
+        try {
+            int flags = buffer.get() & 0xFF;
+            if ((flags & FLAG_DELTA) != 0) {
+                delta_time = buffer.getDouble();
+            } if ((flags & FLAG_EVENTS) != 0) {
+                int count = buffer.getShort() & 0xFFFF;
+                for (int i = 0; i < count; i++) {
+                    int type = buffer.get();
+                    switch (type) {
+                        case InputEvents.KEY -> dst.apply(type,buffer.getShort(),buffer.get(),0,0);
+                        case InputEvents.MOUSE_BUTTON -> dst.apply(type,buffer.get(),buffer.get(),0,0);
+                        case InputEvents.CURSOR, InputEvents.SCROLL -> dst.apply(type,0,0,buffer.getDouble(),buffer.getDouble());
+                        case InputEvents.CHAR -> dst.apply(type,buffer.getInt(),0,0,0);
+                        case InputEvents.GAMEPAD_BUTTON -> dst.apply(type,buffer.getShort() & 0xFFFF,buffer.get(),0,0);
+                        case InputEvents.GAMEPAD_AXIS -> dst.apply(type,buffer.getShort() & 0xFFFF,0,buffer.getFloat(),0);
+                        case InputEvents.GAMEPAD_CONNECTION -> dst.apply(type,buffer.get(),buffer.get(),0,0);
+                        default -> throw new BufferUnderflowException(); // corrupt
+                    }
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            Logger.warn("input recording truncated after {} update steps", steps);
+            buffer.position(buffer.limit());
+            return false;
+        } steps++;
+        return true;
+    }
+}
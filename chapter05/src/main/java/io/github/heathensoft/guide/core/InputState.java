@@ -0,0 +1,155 @@
+package io.github.heathensoft.guide.core;
+
+import static org.lwjgl.glfw.GLFW.*;
+
+/**
+ * The user input seen by the game at an update step
+ */
+public final class InputState {
+
+    public static final int MAX_GAMEPADS = GLFW_JOYSTICK_LAST + 1;
+    public static final int GAMEPAD_AXES = GLFW_GAMEPAD_AXIS_LAST + 1;
+    public static final int MAX_CHARS = 32; // text input per step
+    static final int KEY_WORDS = (GLFW_KEY_LAST >> 6) + 1;
+
+    private final long[] keys = new long[KEY_WORDS];
+    private final long[] keys_pressed = new long[KEY_WORDS];
+    private final long[] keys_released = new long[KEY_WORDS];
+    private int mouse_buttons;
+    private int mouse_pressed;
+    private int mouse_released;
+    private double cursor_x;
+    private double cursor_y;
+    private double cursor_dx;
+    private double cursor_dy;
+    private boolean cursor_entered;
+    private double scroll_x;
+    private double scroll_y;
+    private final int[] chars = new int[MAX_CHARS];
+    private int char_count;
+    private int gamepads_connected; // bitset by joystick id
+    private final int[] gamepad_buttons = new int[MAX_GAMEPADS];
+    private final int[] gamepad_pressed = new int[MAX_GAMEPADS];
+    private final int[] gamepad_released = new int[MAX_GAMEPADS];
+    private final float[] gamepad_axes = new float[MAX_GAMEPADS * GAMEPAD_AXES];
+
+    public boolean isKeyDown(int key) { return validKey(key) && (keys[key >> 6] & (1L << key)) != 0; }
+    public boolean isKeyPressed(int key) { return validKey(key) && (keys_pressed[key >> 6] & (1L << key)) != 0; }
+    public boolean isKeyReleased(int key) { return validKey(key) && (keys_released[key >> 6] & (1L << key)) != 0; }
+
+    public boolean isMouseButtonDown(int button) { return validButton(button) && (mouse_buttons & (1 << button)) != 0; }
+    public boolean isMouseButtonPressed(int button) { return validButton(button) && (mouse_pressed & (1 << button)) != 0; }
+    public boolean isMouseButtonReleased(int button) { return validButton(button) && (mouse_released & (1 << button)) != 0; }
+
+    public double cursorX() { return cursor_x; }
+    public double cursorY() { return cursor_y; }
+    /** @return cursor movement since the previous step */
+    public double cursorDeltaX() { return cursor_dx; }
+    public double cursorDeltaY() { return cursor_dy; }
+    public double scrollX() { return scroll_x; }
+    public double scrollY() { return scroll_y; }
+
+    /** @return number of characters typed since the previous step */
+    public int charCount() { return char_count; }
+    /** @return unicode code point of a typed character, in the order typed */
+    public int charAt(int index) { return chars[index]; }
+
+    /** @return bitset of connected gamepads by joystick id */
+    public int gamepadsConnected() { return gamepads_connected; }
+    public boolean isGamepadConnected(int jid) { return validGamepad(jid) && (gamepads_connected & (1 << jid)) != 0; }
+    public boolean isGamepadButtonDown(int jid, int button) { return validGamepad(jid,button) && (gamepad_buttons[jid] & (1 << button)) != 0; }
+    public boolean isGamepadButtonPressed(int jid, int button) { return validGamepad(jid,button) && (gamepad_pressed[jid] & (1 << button)) != 0; }
+    public boolean isGamepadButtonReleased(int jid, int button) { return validGamepad(jid,button) && (gamepad_released[jid] & (1 << button)) != 0; }
+    /** @return axis value -1 to 1 (triggers rest at -1) */
+    public float gamepadAxis(int jid, int axis) {
+        if (!validGamepad(jid) || axis < 0 || axis >= GAMEPAD_AXES) return 0f;
+        return gamepad_axes[jid * GAMEPAD_AXES + axis];
+    }
+
+    /** Clear what only lasts one step: edges, text, scroll and cursor movement */
+    void beginStep() {
+        for (int i = 0; i < KEY_WORDS; i++) {
+            keys_pressed[i] = 0L;
+            keys_released[i] = 0L;
+        } mouse_pressed = mouse_released = 0;
+        cursor_dx = cursor_dy = 0;
+        scroll_x = scroll_y = 0;
+        char_count = 0;
+        for (int i = 0; i < MAX_GAMEPADS; i++) {
+            gamepad_pressed[i] = 0;
+            gamepad_released[i] = 0;
+        }
+    }
+
+    /** Fold an input event into the state. (See InputEvents) */
+    void apply(int type, int a, int b, double x, double y) {
+        switch (type) {
+            case InputEvents.KEY -> {
+                if (!validKey(a)) return; // GLFW_KEY_UNKNOWN
+                long bit = 1L << a;
+                int word = a >> 6;
+                if (b == GLFW_PRESS) {
+                    keys[word] |= bit;
+                    keys_pressed[word] |= bit;
+                } else if (b == GLFW_RELEASE) {
+                    keys[word] &= ~bit;
+                    keys_released[word] |= bit;
+                }
+            } case InputEvents.MOUSE_BUTTON -> {
+                if (!validButton(a)) return;
+                int bit = 1 << a;
+                if (b == GLFW_PRESS) {
+                    mouse_buttons |= bit;
+                    mouse_pressed |= bit;
+                } else if (b == GLFW_RELEASE) {
+                    mouse_buttons &= ~bit;
+                    mouse_released |= bit;
+                }
+            } case InputEvents.CURSOR -> {
+                if (cursor_entered) {
+                    cursor_dx += x - cursor_x;
+                    cursor_dy += y - cursor_y;
+                } cursor_entered = true; // no movement from (0,0) on the first event
+                cursor_x = x;
+                cursor_y = y;
+            } case InputEvents.SCROLL -> {
+                scroll_x += x;
+                scroll_y += y;
+            } case InputEvents.CHAR -> {
+                if (char_count < MAX_CHARS) chars[char_count++] = a;
+            } case InputEvents.GAMEPAD_BUTTON -> {
+                int jid = a >> 8;
+                if (!validGamepad(jid)) return;
+                int bit = 1 << (a & 0xFF);
+                if (b == GLFW_PRESS) {
+                    gamepad_buttons[jid] |= bit;
+                    gamepad_pressed[jid] |= bit;
+                } else if (b == GLFW_RELEASE) {
+                    gamepad_buttons[jid] &= ~bit;
+                    gamepad_released[jid] |= bit;
+                }
+            } case InputEvents.GAMEPAD_AXIS -> {
+                int jid = a >> 8;
+                int axis = a & 0xFF;
+                if (validGamepad(jid) && axis < GAMEPAD_AXES) {
+                    gamepad_axes[jid * GAMEPAD_AXES + axis] = (float) x;
+                }
+            } case InputEvents.GAMEPAD_CONNECTION -> {
+                if (!validGamepad(a)) return;
+                if (b != 0) gamepads_connected |= (1 << a);
+                else { gamepads_connected &= ~(1 << a);
+                    gamepad_released[a] |= gamepad_buttons[a];
+                    gamepad_buttons[a] = 0;
+                    for (int i = 0; i < GAMEPAD_AXES; i++) gamepad_axes[a * GAMEPAD_AXES + i] = 0f;
+                }
+            }
+        }
+    }
+
+    private static boolean validKey(int key) { return key >= 0 && key <= GLFW_KEY_LAST; }
+    private static boolean validButton(int button) { return button >= 0 && button <= GLFW_MOUSE_BUTTON_LAST; }
+    private static boolean validGamepad(int jid) { return jid >= 0 && jid < MAX_GAMEPADS; }
+    private static boolean validGamepad(int jid, int button) {
+        return validGamepad(jid) && button >= 0 && button <= GLFW_GAMEPAD_BUTTON_LAST;
+    }
+}
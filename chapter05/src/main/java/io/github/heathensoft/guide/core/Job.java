@@ -0,0 +1,87 @@
+package io.github.heathensoft.guide.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A unit of work for the JobSystem, reusable every frame
+ */
+public class Job {
+
+    private final Runnable task;
+    private Job[] successors = new Job[0];      // jobs that depend on this one
+    private int dependency_count;               // number of jobs this one depends on
+    private final AtomicInteger pending_dependencies = new AtomicInteger();
+    final AtomicInteger unfinished = new AtomicInteger(); // 1 + sub-jobs still running
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean complete = true;
+
+    public Job(Runnable task) {
+        if (task == null) throw new IllegalArgumentException("null arg job task");
+        this.task = task;
+    }
+
+    /** For subclasses overriding execute */
+    protected Job() { this.task = null; }
+
+    /** The work. Runs on a worker thread or on a thread waiting for a job */
+    protected void execute() { if (task != null) task.run(); }
+
+    /**
+     * This job will not run before the other job has completed.
+     * Declare dependencies before submitting, not while either job is running.
+     * @return this job
+     */
+    public Job dependsOn(Job other) {
+        if (other == null || other == this) throw new IllegalArgumentException("invalid job dependency");
+        other.successors = Arrays.copyOf(other.successors, other.successors.length + 1);
+        other.successors[other.successors.length - 1] = this;
+        dependency_count++;
+        return this;
+    }
+
+    public boolean isComplete() { return complete; }
+
+    /** @return the first exception thrown by the job (or a sub-job) when last run, or null */
+    public Throwable failure() { return failure.get(); }
+
+    /** @return true if the job has no dependencies */
+    public boolean isRoot() { return dependency_count == 0; }
+
+    /** prepare to be scheduled */
+    void reset() {
+        if (!complete) throw new IllegalStateException("job submitted while running");
+        pending_dependencies.set(dependency_count);
+        unfinished.set(1);
+        failure.set(null);
+        complete = false;
+    }
+
+    /** run the job on the given queue's thread */
+    void run(JobSystem system, JobSystem.WorkQueue queue) {
+        try { execute();
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            finish(system, queue);
+        }
+    }
+
+    /** Keep the first exception. The job still completes */
+    final void fail(Throwable e) {
+        failure.compareAndSet(null, e);
+    }
+
+    /** The job or one of its sub-jobs is done. The last one to finish completes the job */
+    final void finish(JobSystem system, JobSystem.WorkQueue queue) {
+        if (unfinished.decrementAndGet() == 0) {
+            complete = true;
+            for (Job successor : successors) {
+                if (successor.pending_dependencies.decrementAndGet() == 0) {
+                    system.push(queue, successor);
+                }
+            }
+        }
+    }
+}
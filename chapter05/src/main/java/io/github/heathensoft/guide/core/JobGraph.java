@@ -0,0 +1,64 @@
+package io.github.heathensoft.guide.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of jobs and their dependencies, built once and run every frame
+ */
+public final class JobGraph {
+
+    private final List<Job> jobs = new ArrayList<>();
+    private Job[] job_array = new Job[0];
+
+    /** @return a new job in the graph running the task */
+    public Job add(Runnable task) {
+        return add(new Job(task));
+    }
+
+    /** @return the job, added to the graph */
+    public Job add(Job job) {
+        if (job == null) throw new IllegalArgumentException("null arg job");
+        if (!jobs.contains(job)) {
+            jobs.add(job);
+            job_array = jobs.toArray(new Job[0]);
+        } return job;
+    }
+
+    public int size() { return job_array.length; }
+
+    /** Run every job in the graph and wait for all of them to complete */
+    public void run(JobSystem system) {
+        submit(system);
+        waitFor(system);
+    }
+
+    /** Submit every job in the graph. Dependents first, so they are ready before their dependencies complete */
+    public void submit(JobSystem system) {
+        for (int i = job_array.length - 1; i >= 0; i--) {
+            if (!job_array[i].isRoot()) system.submit(job_array[i]);
+        } for (int i = job_array.length - 1; i >= 0; i--) {
+            if (job_array[i].isRoot()) system.submit(job_array[i]);
+        }
+    }
+
+    /**
+     * Wait for every job in the graph to complete
+     * @throws RuntimeException a job threw (the first failed job in the graph)
+     */
+    public void waitFor(JobSystem system) {
+        RuntimeException failure = null;
+        for (Job job : job_array) {
+            try { system.waitFor(job);
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+            }
+        } if (failure != null) throw failure;
+    }
+
+    public boolean isComplete() {
+        for (Job job : job_array) {
+            if (!job.isComplete()) return false;
+        } return true;
+    }
+}
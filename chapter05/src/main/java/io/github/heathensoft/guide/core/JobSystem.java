@@ -0,0 +1,216 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+import org.tinylog.Logger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Work-stealing job system
+ */
+public final class JobSystem implements Disposable {
+
+    private static final int QUEUE_CAPACITY = 4096; // per participant, power of two
+    private static final int SPINS_BEFORE_PARK = 256;
+    private static final long PARK_NANOS = 1_000_000;
+
+    private final Thread owner;
+    private final WorkQueue[] queues;   // [0] owner, [1..] workers
+    private final Worker[] workers;
+    private final AtomicInteger sleeping = new AtomicInteger();
+    private volatile boolean running;
+
+    /** @param worker_threads number of worker threads (in addition to the calling thread) */
+    public JobSystem(int worker_threads) {
+        this.owner = Thread.currentThread();
+        int count = Math.max(0, worker_threads);
+        this.queues = new WorkQueue[count + 1];
+        this.workers = new Worker[count];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new WorkQueue(QUEUE_CAPACITY,i);
+        } running = true;
+        for (int i = 0; i < count; i++) {
+            workers[i] = new Worker(this, i + 1);
+            workers[i].start();
+        } Logger.debug("job system: {} worker threads", count);
+    }
+
+    /** @return number of worker threads */
+    public int workerCount() { return workers.length; }
+
+    /**
+     * Schedule the job. Runs once every job it depends on has completed.
+     * The job must not be running (or waiting to run) already.
+     * Submit a job before the jobs it depends on. (JobGraph does this)
+     */
+    public void submit(Job job) {
+        WorkQueue queue = callerQueue();
+        job.reset();
+        if (job.isRoot()) push(queue, job);
+    }
+
+    /**
+     * Wait for the job to complete. The calling thread runs other jobs meanwhile
+     * @throws RuntimeException the job threw, the cause is the job's first exception
+     */
+    public void waitFor(Job job) {
+        WorkQueue queue = callerQueue();
+        int seed = queue.index;
+        while (!job.isComplete()) {
+            Job next = findJob(queue, seed++);
+            if (next != null) next.run(this, queue);
+            else Thread.onSpinWait();
+        } Throwable failure = job.failure();
+        if (failure != null) throw new RuntimeException("job failed: " + failure.getMessage(), failure);
+    }
+
+    /** Submit the job and wait for it to complete */
+    public void run(Job job) {
+        submit(job);
+        waitFor(job);
+    }
+
+    public void dispose() {
+        if (running) {
+            running = false;
+            for (Worker worker : workers) {
+                LockSupport.unpark(worker);
+            } for (Worker worker : workers) {
+                try { worker.join();
+                } catch (InterruptedException e) {
+                    Logger.error(e);
+                }
+            } Logger.debug("job system: stopped worker threads");
+        }
+    }
+
+    void push(WorkQueue queue, Job job) {
+        if (queue.push(job)) {
+            if (sleeping.get() > 0) wakeWorker();
+        } else job.run(this, queue); // queue full. Run it here and now
+    }
+
+    private void wakeWorker() {
+        for (Worker worker : workers) {
+            if (worker.sleeping) {
+                LockSupport.unpark(worker);
+                return;
+            }
+        }
+    }
+
+    private Job findJob(WorkQueue queue, int seed) {
+        Job job = queue.pop();
+        if (job == null) {
+            int count = queues.length;
+            int start = (seed & 0x7FFFFFFF) % count;
+            for (int i = 0; i < count && job == null; i++) {
+                WorkQueue victim = queues[(start + i) % count];
+                if (victim != queue) job = victim.steal();
+            }
+        } return job;
+    }
+
+    private WorkQueue callerQueue() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof Worker worker && worker.system == this) {
+            return queues[worker.index];
+        } else if (thread == owner) {
+            return queues[0];
+        } throw new IllegalStateException("job system: jobs can only be submitted from the owner or worker threads");
+    }
+
+    private static final class Worker extends Thread {
+
+        final JobSystem system;
+        final int index;
+        volatile boolean sleeping;
+
+        Worker(JobSystem system, int index) {
+            super("job-worker-" + index);
+            this.system = system;
+            this.index = index;
+            setDaemon(true);
+        }
+
+        public void run() {
+            WorkQueue queue = system.queues[index];
+            int seed = index;
+            int idle = 0;
+            while (system.running) {
+                Job job = system.findJob(queue, seed++);
+                if (job != null) {
+                    job.run(system, queue);
+                    idle = 0;
+                } else if (++idle < SPINS_BEFORE_PARK) {
+                    Thread.onSpinWait();
+                } else {
+                    sleeping = true;
+                    system.sleeping.incrementAndGet();
+                    job = system.findJob(queue, seed++); // last look, a push may have missed sleeping
+                    if (job == null) LockSupport.parkNanos(PARK_NANOS);
+                    system.sleeping.decrementAndGet();
+                    sleeping = false;
+                    idle = 0;
+                    if (job != null) job.run(system, queue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Chase-Lev work-stealing deque with a fixed capacity.
+     * The owning thread pushes and pops at the bottom, other threads steal from the top.
+     */
+    static final class WorkQueue {
+
+        final AtomicReferenceArray<Job> slots;
+        final AtomicLong top = new AtomicLong();
+        final int mask;
+        final int index;
+        volatile long bottom;
+
+        WorkQueue(int capacity, int index) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+            this.index = index;
+        }
+
+        /** owner: @return false if full */
+        boolean push(Job job) {
+            long b = bottom;
+            if (b - top.get() > mask) return false;
+            slots.set((int) (b & mask), job);
+            bottom = b + 1;
+            return true;
+        }
+
+        /** owner: @return the most recently pushed job or null */
+        Job pop() {
+            long b = bottom - 1;
+            bottom = b;
+            long t = top.get();
+            if (t <= b) {
+                Job job = slots.get((int) (b & mask));
+                if (t == b) { // last one, race the thieves for it
+                    if (!top.compareAndSet(t, t + 1)) job = null;
+                    bottom = b + 1;
+                } return job;
+            } bottom = b + 1;
+            return null;
+        }
+
+        /** any thread: @return the least recently pushed job or null */
+        Job steal() {
+            long t = top.get();
+            long b = bottom;
+            if (t < b) {
+                Job job = slots.get((int) (t & mask));
+                if (top.compareAndSet(t, t + 1)) return job;
+            } return null;
+        }
+    }
+}
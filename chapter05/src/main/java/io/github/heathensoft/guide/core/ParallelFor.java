@@ -0,0 +1,79 @@
+package io.github.heathensoft.guide.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallel loop over a range in chunks, as a job
+ */
+public final class ParallelFor extends Job {
+
+    /** Process the indices [from, to). Called concurrently from several threads */
+    public interface Body { void execute(int from, int to); }
+
+    private final Body body;
+    private final Helper[] helpers;
+    private final AtomicInteger next_index = new AtomicInteger();
+    private int count;
+    private int grain;
+
+    /**
+     * @param system the job system this will run on (sizes the helpers)
+     * @param body the loop body
+     */
+    public ParallelFor(JobSystem system, Body body) {
+        if (body == null) throw new IllegalArgumentException("null arg parallel for body");
+        this.body = body;
+        this.helpers = new Helper[system.workerCount()];
+        for (int i = 0; i < helpers.length; i++) helpers[i] = new Helper();
+        this.count = 0;
+        this.grain = 1;
+    }
+
+    /**
+     * Set the range before submitting.
+     * @param count number of indices
+     * @param grain indices per chunk (at least 1)
+     * @return this
+     */
+    public ParallelFor range(int count, int grain) {
+        if (!isComplete()) throw new IllegalStateException("parallel for: range changed while running");
+        this.count = Math.max(0, count);
+        this.grain = Math.max(1, grain);
+        return this;
+    }
+
+    void run(JobSystem system, JobSystem.WorkQueue queue) {
+        next_index.set(0);
+        int chunks = (int) (((long) count + grain - 1) / grain);
+        int forks = Math.min(helpers.length, chunks - 1);
+        if (forks > 0) {
+            unfinished.addAndGet(forks);
+            for (int i = 0; i < forks; i++) {
+                system.push(queue, helpers[i]);
+            }
+        } try { processChunks();
+        } catch (Throwable e) {
+            fail(e);
+        } finally {
+            finish(system, queue);
+        }
+    }
+
+    private void processChunks() {
+        int from;
+        while ((from = next_index.getAndAdd(grain)) < count) {
+            body.execute(from, (int) Math.min((long) from + grain, count));
+        }
+    }
+
+    private final class Helper extends Job {
+        void run(JobSystem system, JobSystem.WorkQueue queue) {
+            try { processChunks();
+            } catch (Throwable e) {
+                ParallelFor.this.fail(e);
+            } finally {
+                ParallelFor.this.finish(system, queue);
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.System.nanoTime;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * CPU and GPU timing of nested named scopes
+ */
+public final class Profiler implements Disposable {
+
+    public static final int FRAMES_IN_FLIGHT = 4;
+    public static final int MAX_GPU_SCOPES_PER_FRAME = 256;
+    private static final int MAX_DEPTH = 64;
+
+    private static final Map<String,Integer> scope_ids = new HashMap<>();
+    private static final List<String> scope_paths = new ArrayList<>();
+    private static final List<Integer> scope_parents = new ArrayList<>();
+
+    /**
+     * Register a scope. Parents in the path are registered as well. ("render/sprites" registers "render")
+     * @param path scope names separated by '/'
+     * @return the scope id. The same path always returns the same id
+     */
+    public static synchronized int register(String path) {
+        if (path == null || path.isBlank()) throw new IllegalArgumentException("profiler: invalid scope path");
+        Integer id = scope_ids.get(path);
+        if (id == null) {
+            int separator = path.lastIndexOf('/');
+            int parent = separator > 0 ? register(path.substring(0,separator)) : -1;
+            id = scope_paths.size();
+            scope_paths.add(path);
+            scope_parents.add(parent);
+            scope_ids.put(path,id);
+        } return id;
+    }
+
+    /** @return number of registered scopes. Scope ids are [0, count) */
+    public static synchronized int scopeCount() { return scope_paths.size(); }
+
+    public static synchronized String scopePath(int scope) { return scope_paths.get(scope); }
+
+    /** @return the id of the parent scope or -1 */
+    public static synchronized int scopeParent(int scope) { return scope_parents.get(scope); }
+
+    private final boolean gpu_timing;
+    private boolean enabled;
+    private long frame;
+    // cpu (per scope)
+    private long[] cpu_nanos = new long[0];
+    private long[] cpu_nanos_last = new long[0];
+    private int[] calls = new int[0];
+    private int[] calls_last = new int[0];
+    // gpu (per scope)
+    private long[] gpu_nanos_last = new long[0];
+    private long gpu_frame = -1;
+    private int gpu_frames_dropped;
+    // gpu query ring: [frame slot][scope instance * 2 (+1 for end)]
+    private int[][] queries;
+    private final int[][] query_scopes = new int[FRAMES_IN_FLIGHT][MAX_GPU_SCOPES_PER_FRAME];
+    private final int[] query_counts = new int[FRAMES_IN_FLIGHT];
+    private final int[] query_last = new int[FRAMES_IN_FLIGHT];
+    private final long[] query_frames = new long[FRAMES_IN_FLIGHT];
+    // scope stack
+    private final int[] stack_scopes = new int[MAX_DEPTH];
+    private final long[] stack_start = new long[MAX_DEPTH];
+    private final int[] stack_queries = new int[MAX_DEPTH];
+    private int depth;
+
+    /** @param gpu_timing write timestamp queries. Requires an opengl context on the profiling thread */
+    public Profiler(boolean gpu_timing) {
+        this.gpu_timing = gpu_timing;
+        this.enabled = true;
+    }
+
+    public void setEnabled(boolean enable) {
+        if (depth > 0) throw new IllegalStateException("profiler: enabled / disabled inside a scope");
+        enabled = enable;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public boolean isGpuTiming() { return gpu_timing; }
+
+    public void begin(int scope) {
+        if (!enabled) return;
+        if (depth == MAX_DEPTH) throw new IllegalStateException("profiler: scopes nested too deep");
+        if (scope >= cpu_nanos.length) ensureCapacity(scope + 1);
+        int query = -1;
+        if (gpu_timing) {
+            int slot = (int) (frame % FRAMES_IN_FLIGHT);
+            int count = query_counts[slot];
+            if (count < MAX_GPU_SCOPES_PER_FRAME) {
+                if (queries == null) generateQueries();
+                query = count;
+                query_scopes[slot][count] = scope;
+                query_counts[slot] = count + 1;
+                glQueryCounter(queries[slot][count * 2],GL_TIMESTAMP);
+            }
+        } stack_scopes[depth] = scope;
+        stack_queries[depth] = query;
+        stack_start[depth++] = nanoTime();
+    }
+
+    public void end(int scope) {
+        if (!enabled) return;
+        long end = nanoTime();
+        if (depth == 0 || stack_scopes[depth - 1] != scope) {
+            throw new IllegalStateException("profiler: ended scope " + scope + " is not the innermost scope");
+        } depth--;
+        cpu_nanos[scope] += end - stack_start[depth];
+        calls[scope]++;
+        int query = stack_queries[depth];
+        if (query >= 0) {
+            int slot = (int) (frame % FRAMES_IN_FLIGHT);
+            glQueryCounter(queries[slot][query * 2 + 1],GL_TIMESTAMP);
+            query_last[slot] = query * 2 + 1;
+        }
+    }
+
+    /** End the frame: publish the cpu results and read back the gpu results of (FRAMES_IN_FLIGHT - 1) frames ago */
+    public void endFrame() {
+        if (depth > 0) throw new IllegalStateException("profiler: frame ended inside scope " + stack_scopes[depth - 1]);
+        long[] cpu_swap = cpu_nanos_last;
+        cpu_nanos_last = cpu_nanos;
+        cpu_nanos = cpu_swap;
+        Arrays.fill(cpu_nanos,0L);
+        int[] calls_swap = calls_last;
+        calls_last = calls;
+        calls = calls_swap;
+        Arrays.fill(calls,0);
+        query_frames[(int) (frame % FRAMES_IN_FLIGHT)] = frame;
+        frame++;
+        if (gpu_timing && queries != null) {
+            readBack((int) (frame % FRAMES_IN_FLIGHT));
+        }
+    }
+
+    /** @return cpu time of the scope in the last completed frame (ms) */
+    public double cpuMillis(int scope) {
+        return scope < cpu_nanos_last.length ? cpu_nanos_last[scope] / 1_000_000.0 : 0.0;
+    }
+
+    /** @return gpu time of the scope in the last frame read back (ms). See gpuFrame */
+    public double gpuMillis(int scope) {
+        return scope < gpu_nanos_last.length ? gpu_nanos_last[scope] / 1_000_000.0 : 0.0;
+    }
+
+    /** @return times the scope was begun in the last completed frame */
+    public int calls(int scope) { return scope < calls_last.length ? calls_last[scope] : 0; }
+
+    /** @return number of completed frames */
+    public long frame() { return frame; }
+
+    /** @return the frame the gpu results are from, or -1 if none are available yet */
+    public long gpuFrame() { return gpu_frame; }
+
+    /** @return number of frames where the gpu results were not available in time */
+    public int gpuFramesDropped() { return gpu_frames_dropped; }
+
+    /** Delete the query objects. On the thread with the opengl context */
+    public void dispose() {
+        if (queries != null) {
+            for (int[] slot : queries) glDeleteQueries(slot);
+            queries = null;
+        }
+    }
+
+    private void readBack(int slot) {
+        int count = query_counts[slot];
+        if (count > 0) {
+            if (glGetQueryObjecti(queries[slot][query_last[slot]],GL_QUERY_RESULT_AVAILABLE) == GL_TRUE) {
+                Arrays.fill(gpu_nanos_last,0L);
+                for (int i = 0; i < count; i++) {
+                    long begin = glGetQueryObjectui64(queries[slot][i * 2],GL_QUERY_RESULT);
+                    long end = glGetQueryObjectui64(queries[slot][i * 2 + 1],GL_QUERY_RESULT);
+                    gpu_nanos_last[query_scopes[slot][i]] += end - begin;
+                } gpu_frame = query_frames[slot];
+            } else gpu_frames_dropped++;
+        } query_counts[slot] = 0;
+    }
+
+    private void generateQueries() {
+        queries = new int[FRAMES_IN_FLIGHT][MAX_GPU_SCOPES_PER_FRAME * 2];
+        for (int[] slot : queries) glGenQueries(slot);
+    }
+
+    /** Allocates. Only the first time a scope with a new (higher) id is begun */
+    private void ensureCapacity(int capacity) {
+        cpu_nanos = Arrays.copyOf(cpu_nanos,capacity);
+        cpu_nanos_last = Arrays.copyOf(cpu_nanos_last,capacity);
+        calls = Arrays.copyOf(calls,capacity);
+        calls_last = Arrays.copyOf(calls_last,capacity);
+        gpu_nanos_last = Arrays.copyOf(gpu_nanos_last,capacity);
+    }
+}
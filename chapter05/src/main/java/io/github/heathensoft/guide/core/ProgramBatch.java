@@ -0,0 +1,224 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+import io.github.heathensoft.guide.utils.TraceWriter;
+import org.lwjgl.opengl.ARBParallelShaderCompile;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.opengl.KHRParallelShaderCompile;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.lwjgl.opengl.GL41.*;
+
+/**
+ * Compiles and links programs without waiting for the driver (KHR / ARB_parallel_shader_compile)
+ */
+public final class ProgramBatch implements Disposable {
+
+    private static final int UNLIMITED_THREADS = 0xFFFFFFFF;
+    private static int parallel_support = -1; // 0: none, 1: KHR, 2: ARB. Per context
+
+    private final List<Entry> entries = new ArrayList<>();
+    private int remaining;
+    private boolean submitted;
+
+    /**
+     * @param name optional program name
+     * @param geom_source optional geometry shader source
+     * @return future completed on the opengl thread (poll), exceptionally if the program does not compile or link
+     */
+    public CompletableFuture<ShaderProgram> add(String name, String vert_source, String frag_source, String geom_source) {
+        if (submitted) throw new IllegalStateException("program batch: already submitted");
+        if (vert_source == null || frag_source == null) throw new IllegalArgumentException("program batch: missing vertex or fragment source");
+        Entry entry = new Entry(name == null ? "unnamed_shader_program" : name,vert_source,frag_source,geom_source);
+        entries.add(entry);
+        return entry.future;
+    }
+
+    public CompletableFuture<ShaderProgram> add(String name, String vert_source, String frag_source) {
+        return add(name,vert_source,frag_source,null);
+    }
+
+    /** Compile all stages, then link all programs. Programs found in the binary cache are done on return */
+    public void submit() {
+        if (submitted) throw new IllegalStateException("program batch: already submitted");
+        submitted = true;
+        boolean parallel = enableParallelCompile();
+        long submit_start = System.nanoTime();
+        for (Entry entry : entries) {
+            entry.submit_start = submit_start;
+            if (ProgramBinaryCache.isEnabled()) {
+                entry.key = ProgramBinaryCache.key(entry.vert_source,entry.frag_source,entry.geom_source);
+                int linked_handle = ProgramBinaryCache.load(entry.key,entry.name);
+                if (linked_handle != 0) {
+                    ShaderProgram shader_program = create(entry,linked_handle);
+                    entry.release();
+                    if (shader_program != null) entry.future.complete(shader_program);
+                    continue;
+                }
+            } entry.vert_shader = compile(entry.vert_source,GL_VERTEX_SHADER);
+            entry.frag_shader = compile(entry.frag_source,GL_FRAGMENT_SHADER);
+            if (entry.geom_source != null) entry.geom_shader = compile(entry.geom_source,GL_GEOMETRY_SHADER);
+            remaining++;
+        } for (Entry entry : entries) {
+            if (entry.vert_shader == 0) continue;
+            entry.program = glCreateProgram();
+            glAttachShader(entry.program,entry.vert_shader);
+            glAttachShader(entry.program,entry.frag_shader);
+            if (entry.geom_shader != 0) glAttachShader(entry.program,entry.geom_shader);
+            if (entry.key != null) glProgramParameteri(entry.program,GL_PROGRAM_BINARY_RETRIEVABLE_HINT,GL_TRUE);
+            glLinkProgram(entry.program);
+        } TraceWriter.complete("gl","submit programs",entries.size() + " programs",submit_start,System.nanoTime());
+        Logger.debug("program batch: submitted {} programs ({} to compile, parallel: {})",entries.size(),remaining,parallel);
+    }
+
+    /**
+     * Create the programs the driver is done with.
+     * @return true when every program of the batch is done
+     */
+    public boolean poll() {
+        if (!submitted) throw new IllegalStateException("program batch: not submitted");
+        if (remaining == 0) return true;
+        boolean parallel = parallel_support > 0;
+        for (Entry entry : entries) {
+            if (entry.program == 0) continue;
+            // GL_COMPLETION_STATUS_KHR and GL_COMPLETION_STATUS_ARB are the same enum
+            if (parallel && glGetProgrami(entry.program,KHRParallelShaderCompile.GL_COMPLETION_STATUS_KHR) == GL_FALSE) continue;
+            finish(entry);
+            remaining--;
+            if (!parallel) break;
+        } return remaining == 0;
+    }
+
+    public boolean isSubmitted() { return submitted; }
+
+    public boolean isDone() { return submitted && remaining == 0; }
+
+    /** @return programs not yet done */
+    public int remaining() { return submitted ? remaining : entries.size(); }
+
+    /** Delete the programs still compiling. Their futures are cancelled */
+    public void dispose() {
+        for (Entry entry : entries) {
+            if (!entry.future.isDone()) {
+                if (entry.program != 0) {
+                    glDeleteProgram(entry.program);
+                    entry.program = 0;
+                } entry.deleteShaders();
+                entry.future.cancel(false);
+            }
+        } remaining = 0;
+    }
+
+    /** Complete every future exceptionally without compiling (no opengl context) */
+    void fail(Exception cause) {
+        if (submitted) throw new IllegalStateException("program batch: already submitted");
+        submitted = true;
+        for (Entry entry : entries) {
+            entry.release();
+            entry.future.completeExceptionally(cause);
+        } remaining = 0;
+    }
+
+    private void finish(Entry entry) {
+        int program = entry.program;
+        entry.program = 0;
+        boolean linked = glGetProgrami(program,GL_LINK_STATUS) == GL_TRUE;
+        TraceWriter.complete("gl","compile program",entry.name,entry.submit_start,System.nanoTime());
+        if (linked) {
+            glDetachShader(program,entry.vert_shader);
+            glDetachShader(program,entry.frag_shader);
+            if (entry.geom_shader != 0) glDetachShader(program,entry.geom_shader);
+            entry.deleteShaders();
+            if (entry.key != null) ProgramBinaryCache.store(entry.key,program,entry.name);
+            ShaderProgram shader_program = create(entry,program);
+            entry.release();
+            if (shader_program != null) entry.future.complete(shader_program);
+        } else {
+            String error_message = compileLog(entry.vert_shader);
+            if (error_message == null) error_message = compileLog(entry.frag_shader);
+            if (error_message == null && entry.geom_shader != 0) error_message = compileLog(entry.geom_shader);
+            if (error_message == null) error_message = glGetProgramInfoLog(program);
+            glDeleteProgram(program);
+            entry.deleteShaders();
+            entry.release();
+            entry.future.completeExceptionally(new Exception("program \"" + entry.name + "\": " + error_message));
+        }
+    }
+
+    /** @return the program, or null if it could not be created (the program is deleted, the future completed exceptionally) */
+    private static ShaderProgram create(Entry entry, int program) {
+        try { return new ShaderProgram(entry.name,program);
+        } catch (RuntimeException e) { // the program is deleted by ShaderProgram
+            entry.future.completeExceptionally(new Exception("program \"" + entry.name + "\": " + e.getMessage(),e));
+            return null;
+        }
+    }
+
+    private static int compile(String source, int type) {
+        int shader = glCreateShader(type);
+        glShaderSource(shader,source);
+        glCompileShader(shader);
+        return shader;
+    }
+
+    /** @return the info log if the shader failed to compile, otherwise null */
+    private static String compileLog(int shader) {
+        if (glGetShaderi(shader,GL_COMPILE_STATUS) == GL_TRUE) return null;
+        return glGetShaderInfoLog(shader);
+    }
+
+    /** new context: query the extension and set the compiler threads again */
+    static void contextCreated() { parallel_support = -1; }
+
+    /** Let the driver use as many compiler threads as it likes. Once per context */
+    private static boolean enableParallelCompile() {
+        if (parallel_support < 0) {
+            GLCapabilities capabilities = GL.getCapabilities();
+            if (capabilities.GL_KHR_parallel_shader_compile) {
+                KHRParallelShaderCompile.glMaxShaderCompilerThreadsKHR(UNLIMITED_THREADS);
+                parallel_support = 1;
+            } else if (capabilities.GL_ARB_parallel_shader_compile) {
+                ARBParallelShaderCompile.glMaxShaderCompilerThreadsARB(UNLIMITED_THREADS);
+                parallel_support = 2;
+            } else parallel_support = 0;
+        } return parallel_support > 0;
+    }
+
+    private static final class Entry {
+        final CompletableFuture<ShaderProgram> future = new CompletableFuture<>();
+        final String name;
+        String vert_source;
+        String frag_source;
+        String geom_source;
+        String key;
+        long submit_start;
+        int vert_shader;
+        int frag_shader;
+        int geom_shader;
+        int program;
+
+        Entry(String name, String vert_source, String frag_source, String geom_source) {
+            this.name = name;
+            this.vert_source = vert_source;
+            this.frag_source = frag_source;
+            this.geom_source = geom_source;
+        }
+
+        void deleteShaders() {
+            if (vert_shader != 0) glDeleteShader(vert_shader);
+            if (frag_shader != 0) glDeleteShader(frag_shader);
+            if (geom_shader != 0) glDeleteShader(geom_shader);
+            vert_shader = frag_shader = geom_shader = 0;
+        }
+
+        /** drop the sources once done */
+        void release() {
+            vert_source = frag_source = geom_source = null;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.ExternalFile;
+import io.github.heathensoft.guide.utils.TraceWriter;
+import org.lwjgl.system.MemoryStack;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.stream.Stream;
+
+import static org.lwjgl.opengl.GL41.*;
+
+/**
+ * Linked program binaries on disk (BootConfiguration.program_cache_dir)
+ */
+final class ProgramBinaryCache {
+
+    // File: [magic:int][binary_format:int][length:int][binary]
+    private static final int MAGIC = 0x50424E43; // "PBNC"
+    private static final int HEADER_BYTES = 12;
+    private static final String MANIFEST = "manifest.txt";
+    private static final String EXTENSION = ".bin";
+
+    private static ExternalFile directory;
+    private static String driver;
+
+    /** OpenGL thread, after GLInfo. Disables the cache on failure */
+    static void initialize(String path, GLInfo info) {
+        directory = null;
+        if (path == null) return;
+        if (info.program_binary_formats == 0) {
+            Logger.info("program binary cache: disabled, the driver supports no binary formats");
+            return;
+        } driver = info.vendor + " | " + info.renderer + " | " + info.version;
+        ExternalFile dir = new ExternalFile(path);
+        try { dir.createAsDir();
+            ExternalFile manifest = dir.resolve(MANIFEST);
+            String previous_driver = manifest.isFile() ? manifest.asString().strip() : "";
+            if (!previous_driver.equals(driver)) {
+                if (!previous_driver.isEmpty()) Logger.info("program binary cache: driver changed, clearing");
+                clear(dir);
+                manifest.write(driver);
+            } directory = dir;
+            Logger.debug("program binary cache: {}",dir);
+        } catch (IOException e) {
+            Logger.warn(e,"program binary cache: disabled");
+        }
+    }
+
+    static boolean isEnabled() { return directory != null; }
+
+    /** @return cache key of the program: stage sources (null for a missing stage) and the driver */
+    static String key(String ...sources) {
+        try { MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(driver.getBytes(StandardCharsets.UTF_8));
+            for (String source : sources) {
+                digest.update((byte) 0); // stage separator
+                if (source != null) digest.update(source.getBytes(StandardCharsets.UTF_8));
+            } return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is required of every jvm
+        }
+    }
+
+    /** @return linked program created from the cached binary, or 0 (no binary, or rejected by the driver) */
+    static int load(String key, String program_name) {
+        ExternalFile file = directory.resolve(key + EXTENSION);
+        if (!file.isFile()) return 0;
+        long load_start = System.nanoTime();
+        int program = 0;
+        try { ByteBuffer buffer = file.readToBuffer().order(ByteOrder.BIG_ENDIAN);
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) throw new IOException("not a program binary");
+            int format = buffer.getInt();
+            int length = buffer.getInt();
+            if (length != buffer.remaining()) throw new IOException("truncated program binary");
+            program = glCreateProgram();
+            glProgramBinary(program,format,buffer);
+            if (glGetProgrami(program,GL_LINK_STATUS) == GL_TRUE) {
+                TraceWriter.complete("gl","load program binary",program_name,load_start,System.nanoTime());
+                return program;
+            } Logger.info("program binary cache: binary of \"{}\" rejected by the driver, compiling",program_name);
+        } catch (IOException e) {
+            Logger.warn("program binary cache: unable to read binary of \"{}\": {}",program_name,e.getMessage());
+        } if (program != 0) glDeleteProgram(program);
+        delete(file);
+        return 0;
+    }
+
+    /** Store the binary of a program linked with GL_PROGRAM_BINARY_RETRIEVABLE_HINT */
+    static void store(String key, int program, String program_name) {
+        int length = glGetProgrami(program,GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) return;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_BYTES + length).order(ByteOrder.BIG_ENDIAN);
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            IntBuffer written = stack.mallocInt(1);
+            IntBuffer format = stack.mallocInt(1);
+            glGetProgramBinary(program,written,format,buffer.slice(HEADER_BYTES,length));
+            buffer.putInt(MAGIC).putInt(format.get(0)).putInt(written.get(0));
+            buffer.limit(HEADER_BYTES + written.get(0)).position(0);
+        } try { directory.resolve(key + EXTENSION).write(buffer);
+        } catch (IOException e) {
+            Logger.warn("program binary cache: unable to store binary of \"{}\": {}",program_name,e.getMessage());
+        }
+    }
+
+    private static void clear(ExternalFile dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir.path())) {
+            for (Path file : files.filter(p -> p.getFileName().toString().endsWith(EXTENSION)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void delete(ExternalFile file) {
+        try { file.delete();
+        } catch (IOException e) {
+            Logger.warn("program binary cache: unable to delete {}",file);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package io.github.heathensoft.guide.core;
+
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL43.*;
+
+/**
+ * Uniforms, blocks and vertex inputs of a linked program, reflected once at link time
+ */
+public final class ProgramInterface {
+
+    private static final int[] NO_INTS = new int[0];
+
+    // uniforms (GL_UNIFORM)
+    private final String[] uniform_names;
+    private final int[] uniform_types;
+    private final int[] uniform_array_sizes;
+    private final int[] uniform_locations;     // -1 for block members
+    private final int[] uniform_block_indices; // -1 for the default block
+    private final int[] uniform_offsets;       // block members: byte offset in the block, otherwise -1
+    private final int[] uniform_array_strides;
+    private final int[] uniform_matrix_strides;
+    private final int[] uniform_first_element; // into element_locations, count: uniform_array_sizes (0 for block members)
+    private final int[] element_locations;
+    private final int[] uniform_table;
+    // uniform blocks (GL_UNIFORM_BLOCK)
+    private final String[] block_names;
+    private final int[] block_bindings;
+    private final int[] block_sizes;
+    private final int[] block_table;
+    // shader storage blocks (GL_SHADER_STORAGE_BLOCK)
+    private final String[] storage_names;
+    private final int[] storage_bindings;
+    private final int[] storage_sizes;
+    private final int[] storage_table;
+    // vertex inputs (GL_PROGRAM_INPUT)
+    private final String[] input_names;
+    private final int[] input_types;
+    private final int[] input_array_sizes;
+    private final int[] input_locations;
+    private final int[] input_table;
+
+    ProgramInterface(int program) {
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            int num_uniforms = glGetProgramInterfacei(program,GL_UNIFORM,GL_ACTIVE_RESOURCES);
+            IntBuffer properties = stack.ints(GL_TYPE,GL_ARRAY_SIZE,GL_LOCATION,GL_BLOCK_INDEX,GL_OFFSET,GL_ARRAY_STRIDE,GL_MATRIX_STRIDE);
+            IntBuffer values = stack.mallocInt(properties.remaining());
+            uniform_names = new String[num_uniforms];
+            uniform_types = new int[num_uniforms];
+            uniform_array_sizes = new int[num_uniforms];
+            uniform_locations = new int[num_uniforms];
+            uniform_block_indices = new int[num_uniforms];
+            uniform_offsets = new int[num_uniforms];
+            uniform_array_strides = new int[num_uniforms];
+            uniform_matrix_strides = new int[num_uniforms];
+            uniform_first_element = new int[num_uniforms];
+            int num_elements = 0;
+            for (int uniform = 0; uniform < num_uniforms; uniform++) {
+                glGetProgramResourceiv(program,GL_UNIFORM,uniform,properties,null,values);
+                String name = glGetProgramResourceName(program,GL_UNIFORM,uniform);
+                uniform_names[uniform] = name.endsWith("[0]") ? name.substring(0,name.length() - 3) : name;
+                uniform_types[uniform] = values.get(0);
+                uniform_array_sizes[uniform] = Math.max(1,values.get(1));
+                uniform_locations[uniform] = values.get(2);
+                uniform_block_indices[uniform] = values.get(3);
+                uniform_offsets[uniform] = values.get(4);
+                uniform_array_strides[uniform] = values.get(5);
+                uniform_matrix_strides[uniform] = values.get(6);
+                uniform_first_element[uniform] = num_elements;
+                if (values.get(2) >= 0) num_elements += uniform_array_sizes[uniform];
+            } element_locations = new int[num_elements];
+            for (int uniform = 0; uniform < num_uniforms; uniform++) {
+                int location = uniform_locations[uniform];
+                if (location < 0) continue;
+                int first = uniform_first_element[uniform];
+                element_locations[first] = location;
+                for (int i = 1; i < uniform_array_sizes[uniform]; i++) {
+                    element_locations[first + i] = glGetUniformLocation(program,uniform_names[uniform] + "[" + i + "]");
+                }
+            } uniform_table = table(uniform_names);
+
+            int num_blocks = glGetProgramInterfacei(program,GL_UNIFORM_BLOCK,GL_ACTIVE_RESOURCES);
+            block_names = new String[num_blocks];
+            block_bindings = new int[num_blocks];
+            block_sizes = new int[num_blocks];
+            reflectBlocks(program,GL_UNIFORM_BLOCK,block_names,block_bindings,block_sizes,stack);
+            block_table = table(block_names);
+
+            int num_storage_blocks = glGetProgramInterfacei(program,GL_SHADER_STORAGE_BLOCK,GL_ACTIVE_RESOURCES);
+            storage_names = new String[num_storage_blocks];
+            storage_bindings = new int[num_storage_blocks];
+            storage_sizes = new int[num_storage_blocks];
+            reflectBlocks(program,GL_SHADER_STORAGE_BLOCK,storage_names,storage_bindings,storage_sizes,stack);
+            storage_table = table(storage_names);
+
+            int num_inputs = glGetProgramInterfacei(program,GL_PROGRAM_INPUT,GL_ACTIVE_RESOURCES);
+            properties = stack.ints(GL_TYPE,GL_ARRAY_SIZE,GL_LOCATION);
+            input_names = new String[num_inputs];
+            input_types = new int[num_inputs];
+            input_array_sizes = new int[num_inputs];
+            input_locations = new int[num_inputs];
+            for (int input = 0; input < num_inputs; input++) {
+                glGetProgramResourceiv(program,GL_PROGRAM_INPUT,input,properties,null,values);
+                input_names[input] = glGetProgramResourceName(program,GL_PROGRAM_INPUT,input);
+                input_types[input] = values.get(0);
+                input_array_sizes[input] = Math.max(1,values.get(1));
+                input_locations[input] = values.get(2); // -1 for built-ins (gl_VertexID)
+            } input_table = table(input_names);
+        }
+    }
+
+    // Uniforms
+
+    public int uniformCount() { return uniform_names.length; }
+
+    /** @return id of the uniform (array name with or without "[0]"), or -1 */
+    public int uniform(String name) {
+        int id = find(uniform_table,uniform_names,name);
+        if (id < 0 && name.endsWith("[0]")) id = find(uniform_table,uniform_names,name.substring(0,name.length() - 3));
+        return id;
+    }
+
+    /**
+     * @param name uniform name, or array element: "u_array[i]"
+     * @return location, or -1 (no such uniform, element out of range or block member)
+     */
+    public int uniformLocation(String name) {
+        int id = find(uniform_table,uniform_names,name);
+        if (id >= 0) return uniform_locations[id];
+        int length = name.length();
+        int open = name.lastIndexOf('[');
+        if (open <= 0 || name.charAt(length - 1) != ']' || open == length - 2) return -1;
+        int index = 0;
+        for (int i = open + 1; i < length - 1; i++) {
+            int digit = name.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || index > 100_000) return -1;
+            index = index * 10 + digit;
+        } id = find(uniform_table,uniform_names,name.substring(0,open));
+        if (id < 0 || uniform_locations[id] < 0 || index >= uniform_array_sizes[id]) return -1;
+        return element_locations[uniform_first_element[id] + index];
+    }
+
+    public String uniformName(int id) { return uniform_names[id]; }
+    /** @return GL type (GL_FLOAT_VEC4, GL_SAMPLER_2D, ...) */
+    public int uniformType(int id) { return uniform_types[id]; }
+    /** @return number of array elements (1 if not an array) */
+    public int uniformArraySize(int id) { return uniform_array_sizes[id]; }
+    /** @return location of the first element, -1 for block members */
+    public int uniformLocation(int id) { return uniform_locations[id]; }
+    /** @return location of an array element, -1 for block members */
+    public int uniformElementLocation(int id, int element) {
+        if (uniform_locations[id] < 0) return -1;
+        return element_locations[uniform_first_element[id] + element];
+    }
+    /** @return uniform block id of the member, -1 for the default block */
+    public int uniformBlock(int id) { return uniform_block_indices[id]; }
+    /** @return byte offset of the block member, -1 for the default block */
+    public int uniformOffset(int id) { return uniform_offsets[id]; }
+    public int uniformArrayStride(int id) { return uniform_array_strides[id]; }
+    public int uniformMatrixStride(int id) { return uniform_matrix_strides[id]; }
+
+    // Uniform blocks
+
+    public int uniformBlockCount() { return block_names.length; }
+    /** @return id of the uniform block, or -1 */
+    public int uniformBlock(String name) { return find(block_table,block_names,name); }
+    public String uniformBlockName(int id) { return block_names[id]; }
+    public int uniformBlockBinding(int id) { return block_bindings[id]; }
+    /** @return GL_BUFFER_DATA_SIZE of the block */
+    public int uniformBlockSize(int id) { return block_sizes[id]; }
+
+    // Shader storage blocks
+
+    public int storageBlockCount() { return storage_names.length; }
+    /** @return id of the shader storage block, or -1 */
+    public int storageBlock(String name) { return find(storage_table,storage_names,name); }
+    public String storageBlockName(int id) { return storage_names[id]; }
+    public int storageBlockBinding(int id) { return storage_bindings[id]; }
+    /** @return GL_BUFFER_DATA_SIZE of the block (fixed part, without the unsized array) */
+    public int storageBlockSize(int id) { return storage_sizes[id]; }
+
+    // Vertex inputs
+
+    public int inputCount() { return input_names.length; }
+    /** @return id of the vertex input, or -1 */
+    public int input(String name) { return find(input_table,input_names,name); }
+    public String inputName(int id) { return input_names[id]; }
+    public int inputType(int id) { return input_types[id]; }
+    public int inputArraySize(int id) { return input_array_sizes[id]; }
+    /** @return attribute location, -1 for built-ins */
+    public int inputLocation(int id) { return input_locations[id]; }
+
+    /** ShaderProgram on link: block names by id (GL_UNIFORM_BLOCK or GL_SHADER_STORAGE_BLOCK) */
+    String[] blockNames(int interface_type) { return interface_type == GL_UNIFORM_BLOCK ? block_names : storage_names; }
+
+    /** ShaderProgram on link: block binding points by id, written with the assigned binding points */
+    int[] blockBindings(int interface_type) { return interface_type == GL_UNIFORM_BLOCK ? block_bindings : storage_bindings; }
+
+    private static void reflectBlocks(int program, int interface_type, String[] names, int[] bindings, int[] sizes, MemoryStack stack) {
+        IntBuffer properties = stack.ints(GL_BUFFER_BINDING,GL_BUFFER_DATA_SIZE);
+        IntBuffer values = stack.mallocInt(2);
+        for (int block = 0; block < names.length; block++) {
+            glGetProgramResourceiv(program,interface_type,block,properties,null,values);
+            names[block] = glGetProgramResourceName(program,interface_type,block);
+            bindings[block] = values.get(0);
+            sizes[block] = values.get(1);
+        }
+    }
+
+    /** @return open addressing table of ids + 1 by name hash. (Capacity: power of two, at least twice the names) */
+    private static int[] table(String[] names) {
+        if (names.length == 0) return NO_INTS;
+        int capacity = Integer.highestOneBit(names.length * 2 - 1) << 1;
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < names.length; id++) {
+            int slot = mix(names[id].hashCode()) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        } return table;
+    }
+
+    private static int find(int[] table, String[] names, String name) {
+        if (table.length == 0) return -1;
+        int mask = table.length - 1;
+        int slot = mix(name.hashCode()) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (names[entry - 1].equals(name)) return entry - 1;
+            slot = (slot + 1) & mask;
+        } return -1;
+    }
+
+    private static int mix(int hash) { return hash ^ (hash >>> 16); }
+}
@@ -1,9 +1,11 @@
 package io.github.heathensoft.guide.core;
 
 import io.github.heathensoft.guide.utils.Disposable;
+import io.github.heathensoft.guide.utils.TraceWriter;
 
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL32.GL_GEOMETRY_SHADER;
+import static org.lwjgl.opengl.GL43.GL_COMPUTE_SHADER;
 
 /**
  * Frederik Dahl 12/8/2024
@@ -13,7 +15,8 @@ public class Shader implements Disposable {
     public enum Type {
         VERT_SHADER(GL_VERTEX_SHADER),
         FRAG_SHADER(GL_FRAGMENT_SHADER),
-        GEOM_SHADER(GL_GEOMETRY_SHADER);
+        GEOM_SHADER(GL_GEOMETRY_SHADER),
+        COMP_SHADER(GL_COMPUTE_SHADER);
         public final int gl_enum;
         Type(int gl_enum) { this.gl_enum = gl_enum; }
     }
@@ -21,14 +24,16 @@ public class Shader implements Disposable {
     private final Type type;    // shader type (vert, frag, geom)
     private final int handle;   // opengl shader handle
 
-    /** will compile the shader -> throws exception if compilation failed */
+    /** will compile the shader -> throws exception if compilation failed. Blocks until compiled (see ProgramBatch) */
     public Shader(String source, Type type) throws Exception {
         if (type == null) throw new RuntimeException("null arg shader type");
         this.handle = glCreateShader(type.gl_enum);
         this.type = type;
+        long compile_start = System.nanoTime();
         glShaderSource(handle,source == null ? "" : source);
         glCompileShader(handle);
         int compile_status = glGetShaderi(handle,GL_COMPILE_STATUS);
+        TraceWriter.complete("gl","compile shader",type.name(),compile_start,System.nanoTime());
         if (compile_status == GL_FALSE) {
             String error_log = glGetShaderInfoLog(handle);
             glDeleteShader(handle);
@@ -0,0 +1,115 @@
+package io.github.heathensoft.guide.core;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Program permutations of the same sources by #define flags, compiled on first use
+ */
+public final class ShaderPermutations {
+
+    private final String name;
+    private final String[] flags;
+    private final ShaderSource vert_source;
+    private final ShaderSource frag_source;
+    private final ShaderSource geom_source;
+    private int[] masks = new int[4];
+    private ShaderProgram[] programs = new ShaderProgram[4];
+    private int count;
+
+    /**
+     * @param name program name, permutations are named: name[FLAG_A|FLAG_B]
+     * @param flags the define names
+     * @param geom_source optional geometry shader source
+     */
+    public ShaderPermutations(String name, String[] flags, ShaderSource vert_source, ShaderSource frag_source, ShaderSource geom_source) {
+        if (flags.length > 32) throw new IllegalArgumentException("shader permutations \"" + name + "\": more than 32 flags");
+        this.name = name;
+        this.flags = flags.clone();
+        this.vert_source = vert_source;
+        this.frag_source = frag_source;
+        this.geom_source = geom_source;
+    }
+
+    public ShaderPermutations(String name, String[] flags, ShaderSource vert_source, ShaderSource frag_source) {
+        this(name,flags,vert_source,frag_source,null);
+    }
+
+    /** @return bit of the flag */
+    public int flag(String flag) {
+        for (int i = 0; i < flags.length; i++) {
+            if (flags[i].equals(flag)) return 1 << i;
+        } throw new IllegalArgumentException("shader permutations \"" + name + "\": no flag " + flag);
+    }
+
+    /** @return mask of the flags */
+    public int mask(String ...flags) {
+        int mask = 0;
+        for (String flag : flags) mask |= flag(flag);
+        return mask;
+    }
+
+    /**
+     * @return the permutation, compiled (or loaded from the program binary cache) on first use
+     * @throws Exception could not compile or link the permutation
+     */
+    public ShaderProgram get(int mask) throws Exception {
+        ShaderProgram program = find(mask);
+        if (program == null) {
+            program = ShaderProgram.create(permutationName(mask),
+                    vert_source.specialize(flags,mask),
+                    frag_source.specialize(flags,mask),
+                    geom_source == null ? null : geom_source.specialize(flags,mask));
+            put(mask,program);
+        } return program;
+    }
+
+    /**
+     * Compile the permutation without blocking the frame. (Ahead of first use, i.e. while loading)
+     * @return future completed on the opengl thread when the batch is polled
+     */
+    public CompletableFuture<ShaderProgram> compile(ProgramBatch batch, int mask) {
+        ShaderProgram program = find(mask);
+        if (program != null) return CompletableFuture.completedFuture(program);
+        return batch.add(permutationName(mask),
+                vert_source.specialize(flags,mask),
+                frag_source.specialize(flags,mask),
+                geom_source == null ? null : geom_source.specialize(flags,mask)
+        ).thenApply(compiled -> {
+            ShaderProgram cached = find(mask);
+            if (cached != null) return cached; // compiled by get meanwhile
+            put(mask,compiled);
+            return compiled;
+        });
+    }
+
+    /** @return the permutation if compiled, otherwise null */
+    public ShaderProgram find(int mask) {
+        for (int i = 0; i < count; i++) {
+            if (masks[i] == mask) return programs[i];
+        } return null;
+    }
+
+    public String name() { return name; }
+
+    /** @return number of compiled permutations */
+    public int count() { return count; }
+
+    private void put(int mask, ShaderProgram program) {
+        if (count == masks.length) {
+            masks = Arrays.copyOf(masks,count * 2);
+            programs = Arrays.copyOf(programs,count * 2);
+        } masks[count] = mask;
+        programs[count++] = program;
+    }
+
+    private String permutationName(int mask) {
+        StringBuilder builder = new StringBuilder(name).append('[');
+        for (int i = 0; i < flags.length; i++) {
+            if ((mask & (1 << i)) != 0) {
+                if (builder.charAt(builder.length() - 1) != '[') builder.append('|');
+                builder.append(flags[i]);
+            }
+        } return builder.append(']').toString();
+    }
+}
@@ -1,14 +1,16 @@
 package io.github.heathensoft.guide.core;
 
+import io.github.heathensoft.guide.utils.Disposable;
+import io.github.heathensoft.guide.utils.TraceWriter;
 import org.joml.*;
 import org.lwjgl.system.MemoryStack;
 import org.tinylog.Logger;
 
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 import static org.lwjgl.opengl.GL11.GL_TRUE;
 import static org.lwjgl.opengl.GL20.*;
@@ -16,19 +18,24 @@ import static org.lwjgl.opengl.GL20.glDeleteProgram;
 import static org.lwjgl.opengl.GL43.*;
 
 /**
+ * The static setUniform methods look up the uniform by name on every call.
+ * For uniforms set every frame, resolve a typed handle once instead (Uniform).
+ * The instance set methods update a program without using it (glProgramUniform).
+ * The program in use is tracked by GLState.
  * Frederik Dahl 12/8/2024
  */
 public class ShaderProgram {
 
-    private static final Map<Integer,ShaderProgram> programs_by_id = new HashMap<>();
-    private static ShaderProgram current_program;
+    private static ShaderProgram[] programs_by_handle = new ShaderProgram[16]; // registry, by GL handle
 
     private final int handle;
     private final String name;
-    private Map<String,Integer> uniforms;
+    private ProgramInterface program_interface;
+    UniformCache uniform_cache;
     private Shader vert_shader;
     private Shader frag_shader;
     private Shader geom_shader;
+    private Shader comp_shader;
 
     /**
      * failing to link the program will detach the shaders from the program and delete the program.
@@ -40,30 +47,52 @@ public class ShaderProgram {
      * @throws Exception could not link the program
      */
     public ShaderProgram(String name, Shader vert_shader, Shader frag_shader, Shader geom_shader) throws Exception {
+        this(name,vert_shader,frag_shader,geom_shader,null,false);
+    }
+
+    /** compute program (ComputeProgram) */
+    ShaderProgram(String name, Shader comp_shader, boolean retrievable) throws Exception {
+        this(name,null,null,null,comp_shader,retrievable);
+    }
+
+    private ShaderProgram(String name, Shader vert_shader, Shader frag_shader, Shader geom_shader, Shader comp_shader, boolean retrievable) throws Exception {
         this.name = name == null ? "unnamed_shader_program" : name;
         this.handle = glCreateProgram();
         if (vert_shader != null) glAttachShader(handle,vert_shader.handle());
         if (frag_shader != null) glAttachShader(handle,frag_shader.handle());
         if (geom_shader != null) glAttachShader(handle,geom_shader.handle());
+        if (comp_shader != null) glAttachShader(handle,comp_shader.handle());
+        if (retrievable) glProgramParameteri(handle,GL_PROGRAM_BINARY_RETRIEVABLE_HINT,GL_TRUE);
         Logger.debug("creating shader program: \"{}\"",this.name);
+        long link_start = System.nanoTime();
         glLinkProgram(handle);
         int status = glGetProgrami(handle,GL_LINK_STATUS);
+        TraceWriter.complete("gl","link program",this.name,link_start,System.nanoTime());
         if (status == GL_TRUE) {
             this.vert_shader = vert_shader;
             this.frag_shader = frag_shader;
             this.geom_shader = geom_shader;
-            this.uniforms = createUniformLocationMap(handle);
-            programs_by_id.putIfAbsent(handle,this);
+            this.comp_shader = comp_shader;
+            initializeLinked();
         }  else {
             if (vert_shader != null) glDetachShader(handle,vert_shader.handle());
             if (frag_shader != null) glDetachShader(handle,frag_shader.handle());
             if (geom_shader != null) glDetachShader(handle,geom_shader.handle());
+            if (comp_shader != null) glDetachShader(handle,comp_shader.handle());
             String error_message = glGetProgramInfoLog(handle);
             glDeleteProgram(handle);
             throw new Exception(error_message);
         }
     }
 
+    /** program already linked, from a binary or a ProgramBatch (no shaders attached) */
+    ShaderProgram(String name, int linked_handle) {
+        this.name = name == null ? "unnamed_shader_program" : name;
+        this.handle = linked_handle;
+        Logger.debug("creating shader program: \"{}\" (linked)",this.name);
+        initializeLinked();
+    }
+
     public ShaderProgram(Shader vert_shader, Shader frag_shader, Shader geom_shader) throws Exception {
         this(null,vert_shader,frag_shader,geom_shader);
     }
@@ -78,6 +107,42 @@ public class ShaderProgram {
 
 
 
+    /**
+     * Create a program from stage sources. With the program binary cache enabled (BootConfiguration.program_cache_dir),
+     * the linked binary is loaded from disk if available, otherwise the program is compiled, linked and stored.
+     * The shaders are deleted after linking.
+     * @param name optional program name
+     * @param geom_source optional geometry shader source
+     * @throws Exception could not compile or link the program
+     */
+    public static ShaderProgram create(String name, String vert_source, String frag_source, String geom_source) throws Exception {
+        String key = null;
+        if (ProgramBinaryCache.isEnabled()) {
+            key = ProgramBinaryCache.key(vert_source,frag_source,geom_source);
+            int linked_handle = ProgramBinaryCache.load(key,name);
+            if (linked_handle != 0) return new ShaderProgram(name,linked_handle);
+        } Shader vert_shader = null;
+        Shader frag_shader = null;
+        Shader geom_shader = null;
+        try { vert_shader = new Shader(vert_source,Shader.Type.VERT_SHADER);
+            frag_shader = new Shader(frag_source,Shader.Type.FRAG_SHADER);
+            if (geom_source != null) geom_shader = new Shader(geom_source,Shader.Type.GEOM_SHADER);
+            ShaderProgram program = new ShaderProgram(name,vert_shader,frag_shader,geom_shader,null,key != null);
+            program.detachShaders(true);
+            if (key != null) ProgramBinaryCache.store(key,program.handle,program.name);
+            return program;
+        } catch (Exception e) {
+            Disposable.dispose(vert_shader);
+            Disposable.dispose(frag_shader);
+            Disposable.dispose(geom_shader);
+            throw e;
+        }
+    }
+
+    public static ShaderProgram create(String name, String vert_source, String frag_source) throws Exception {
+        return create(name,vert_source,frag_source,null);
+    }
+
     public void detachShaders(boolean delete) {
         if (vert_shader != null) {
             glDetachShader(handle,vert_shader.handle());
@@ -91,6 +156,10 @@ public class ShaderProgram {
             glDetachShader(handle,geom_shader.handle());
             if (delete) geom_shader.dispose();
             geom_shader = null;
+        } if (comp_shader != null) {
+            glDetachShader(handle,comp_shader.handle());
+            if (delete) comp_shader.dispose();
+            comp_shader = null;
         }
     }
 
@@ -99,6 +168,7 @@ public class ShaderProgram {
             case VERT_SHADER -> { return vert_shader; }
             case FRAG_SHADER -> { return frag_shader; }
             case GEOM_SHADER -> { return geom_shader; }
+            case COMP_SHADER -> { return comp_shader; }
         } return null;
     }
 
@@ -111,15 +181,61 @@ public class ShaderProgram {
     }
 
     public boolean isUsed() {
-        return this == current_program;
+        return GLState.program() == handle;
+    }
+
+    /** @return uniforms, blocks and vertex inputs of the program, reflected at link time */
+    public ProgramInterface programInterface() {
+        return program_interface;
+    }
+
+    /** @return binding point of the program's shader storage block, or -1 if the program has no such block */
+    public int storageBlockBinding(String block_name) {
+        int block = program_interface.storageBlock(block_name);
+        return block < 0 ? -1 : program_interface.storageBlockBinding(block);
     }
 
+    /** @return binding point of the program's uniform block, or -1 if the program has no such block */
+    public int uniformBlockBinding(String block_name) {
+        int block = program_interface.uniformBlock(block_name);
+        return block < 0 ? -1 : program_interface.uniformBlockBinding(block);
+    }
+
+    /** @return uniform writes skipped because the value was already set */
+    public long uniformCacheHits() {
+        return uniform_cache.hits();
+    }
+
+    /** @return uniform writes issued to the driver */
+    public long uniformCacheMisses() {
+        return uniform_cache.misses();
+    }
+
+    /** @return uniform writes skipped, all programs */
+    public static long uniformCacheHitsTotal() {
+        return UniformCache.hitsTotal();
+    }
+
+    /** @return uniform writes issued, all programs */
+    public static long uniformCacheMissesTotal() {
+        return UniformCache.missesTotal();
+    }
+
+    /** @return the program in use (GLState), or null */
     public static ShaderProgram currentProgram() {
-        return current_program;
+        return byHandle(GLState.program());
+    }
+
+    /** @return the program of the GL handle, or null */
+    public static ShaderProgram byHandle(int gl_handle) {
+        return gl_handle > 0 && gl_handle < programs_by_handle.length ? programs_by_handle[gl_handle] : null;
     }
 
     public static List<ShaderProgram> allPrograms() {
-        return programs_by_id.values().stream().toList();
+        List<ShaderProgram> list = new ArrayList<>();
+        for (ShaderProgram program : programs_by_handle) {
+            if (program != null) list.add(program);
+        } return list;
     }
 
     public static void useProgram(ShaderProgram program) {
@@ -128,50 +244,36 @@ public class ShaderProgram {
     }
 
     public static void useProgram(int gl_handle) {
-        if (gl_handle == GL_NONE) {
-            if (current_program != null) {
-                glUseProgram(GL_NONE);
-                current_program = null; }
-        } else if (current_program == null) {
-            ShaderProgram program = programs_by_id.get(gl_handle);
-            if (program == null) throw new RuntimeException("no such shader program");
-            glUseProgram(program.handle);
-            current_program = program;
-        } else if (current_program.handle != gl_handle) {
-            ShaderProgram program = programs_by_id.get(gl_handle);
-            if (program == null) throw new RuntimeException("no such shader program");
-            glUseProgram(program.handle);
-            current_program = program;
-        }
+        if (gl_handle != GL_NONE && byHandle(gl_handle) == null) throw new RuntimeException("no such shader program");
+        GLState.useProgram(gl_handle);
     }
 
     public static void deleteCurrentProgram() {
-        deleteProgram(current_program);
+        deleteProgram(currentProgram());
     }
 
     private static void deleteProgram(ShaderProgram program) {
         if (program != null) {
             int program_handle = program.handle;
-            programs_by_id.remove(program_handle,program);
-            if (program == current_program) {
-                current_program = null;
-                glUseProgram(GL_NONE);
-            } String name = program.name;
+            if (programs_by_handle[program_handle] == program) programs_by_handle[program_handle] = null;
+            if (GLState.program() == program_handle) GLState.useProgram(GL_NONE);
+            String name = program.name;
             Logger.debug("deleting shader program: \"{}\"",name);
             program.detachShaders(true);
+            program.uniform_cache.dispose();
             glDeleteProgram(program_handle);
         }
     }
 
     public static void deleteAllPrograms() {
-        for (var entry : programs_by_id.entrySet()) {
-            deleteProgram(entry.getValue());
+        for (ShaderProgram program : allPrograms()) {
+            deleteProgram(program);
         }
     }
 
     public static void setUniform(String name, int i) {
         int uniform_location = getUniformLocation(name);
-        glUniform1i(uniform_location,i);
+        uniform1i(uniform_location,i);
     }
 
     public static void setUniform(String name, int i0, int i1) {
@@ -179,7 +281,7 @@ public class ShaderProgram {
         try (MemoryStack stack = MemoryStack.stackPush()){
             IntBuffer buffer = stack.mallocInt(2);
             buffer.put(i0).put(i1).flip();
-            glUniform2iv(uniform_location,buffer);
+            uniform2iv(uniform_location,buffer);
         }
     }
 
@@ -188,7 +290,7 @@ public class ShaderProgram {
         try (MemoryStack stack = MemoryStack.stackPush()){
             IntBuffer buffer = stack.mallocInt(3);
             buffer.put(i0).put(i1).put(i2).flip();
-            glUniform3iv(uniform_location,buffer);
+            uniform3iv(uniform_location,buffer);
         }
     }
 
@@ -197,7 +299,7 @@ public class ShaderProgram {
         try (MemoryStack stack = MemoryStack.stackPush()){
             IntBuffer buffer = stack.mallocInt(4);
             buffer.put(i0).put(i1).put(i2).put(i3).flip();
-            glUniform4iv(uniform_location,buffer);
+            uniform4iv(uniform_location,buffer);
         }
     }
 
@@ -211,19 +313,19 @@ public class ShaderProgram {
             IntBuffer buffer = stack.mallocInt(count);
             for (int i = 0; i < count; i++) {
                 buffer.put(array[i + offset]);
-            } glUniform1iv(uniform_location,buffer.flip());
+            } uniform1iv(uniform_location,buffer.flip());
         }
     }
 
     public static void setUniform(String name, IntBuffer buffer) {
         int uniform_location = getUniformLocation(name);
-        glUniform1iv(uniform_location,buffer);
+        uniform1iv(uniform_location,buffer);
     }
 
 
     public static void setUniform(String name, float f) {
         int uniform_location = getUniformLocation(name);
-        glUniform1f(uniform_location,f);
+        uniform1f(uniform_location,f);
     }
 
     public static void setUniform(String name, float f0, float f1) {
@@ -231,7 +333,7 @@ public class ShaderProgram {
         try (MemoryStack stack = MemoryStack.stackPush()){
             FloatBuffer buffer = stack.mallocFloat(2);
             buffer.put(f0).put(f1).flip();
-            glUniform2fv(uniform_location,buffer);
+            uniform2fv(uniform_location,buffer);
         }
     }
 
@@ -240,7 +342,7 @@ public class ShaderProgram {
         try (MemoryStack stack = MemoryStack.stackPush()){
             FloatBuffer buffer = stack.mallocFloat(3);
             buffer.put(f0).put(f1).put(f2).flip();
-            glUniform3fv(uniform_location,buffer);
+            uniform3fv(uniform_location,buffer);
         }
     }
 
@@ -249,7 +351,7 @@ public class ShaderProgram {
         try (MemoryStack stack = MemoryStack.stackPush()){
             FloatBuffer buffer = stack.mallocFloat(4);
             buffer.put(f0).put(f1).put(f2).put(f3).flip();
-            glUniform4fv(uniform_location,buffer);
+            uniform4fv(uniform_location,buffer);
         }
     }
 
@@ -263,13 +365,13 @@ public class ShaderProgram {
             FloatBuffer buffer = stack.mallocFloat(count);
             for (int i = 0; i < count; i++) {
                 buffer.put(array[i + offset]);
-            } glUniform1fv(uniform_location,buffer.flip());
+            } uniform1fv(uniform_location,buffer.flip());
         }
     }
 
     public static void setUniform(String name, FloatBuffer buffer) {
         int uniform_location = getUniformLocation(name);
-        glUniform1fv(uniform_location,buffer);
+        uniform1fv(uniform_location,buffer);
     }
 
     public static void setUniform(String name, Vector2f vec2) {
@@ -300,7 +402,7 @@ public class ShaderProgram {
         int uniform_location = getUniformLocation(name);
         try (MemoryStack stack = MemoryStack.stackPush()){
             FloatBuffer buffer = stack.mallocFloat(4);
-            glUniformMatrix2fv(uniform_location,false,mat2.get(buffer));
+            uniformMatrix2fv(uniform_location,false,mat2.get(buffer));
         }
     }
 
@@ -308,7 +410,7 @@ public class ShaderProgram {
         int uniform_location = getUniformLocation(name);
         try (MemoryStack stack = MemoryStack.stackPush()){
             FloatBuffer buffer = stack.mallocFloat(9);
-            glUniformMatrix3fv(uniform_location,false,mat3.get(buffer));
+            uniformMatrix3fv(uniform_location,false,mat3.get(buffer));
         }
     }
 
@@ -316,7 +418,7 @@ public class ShaderProgram {
         int uniform_location = getUniformLocation(name);
         try (MemoryStack stack = MemoryStack.stackPush()){
             FloatBuffer buffer = stack.mallocFloat(16);
-            glUniformMatrix4fv(uniform_location,false,mat4.get(buffer));
+            uniformMatrix4fv(uniform_location,false,mat4.get(buffer));
         }
     }
 
@@ -326,7 +428,7 @@ public class ShaderProgram {
             FloatBuffer buffer = stack.mallocFloat(2 * vec2.length);
             for (Vector2f value : vec2) {
                 buffer.put(value.x).put(value.y);
-            } glUniform2fv(uniform_location,buffer.flip());
+            } uniform2fv(uniform_location,buffer.flip());
         }
     }
 
@@ -336,7 +438,7 @@ public class ShaderProgram {
             FloatBuffer buffer = stack.mallocFloat(3 * vec3.length);
             for (Vector3f v : vec3) {
                 buffer.put(v.x).put(v.y).put(v.z);
-            } glUniform3fv(uniform_location,buffer.flip());
+            } uniform3fv(uniform_location,buffer.flip());
         }
     }
 
@@ -346,7 +448,7 @@ public class ShaderProgram {
             FloatBuffer buffer = stack.mallocFloat(4 * vec4.length);
             for (Vector4f v : vec4) {
                 buffer.put(v.x).put(v.y).put(v.z).put(v.w);
-            } glUniform4fv(uniform_location,buffer.flip());
+            } uniform4fv(uniform_location,buffer.flip());
         }
     }
 
@@ -356,7 +458,7 @@ public class ShaderProgram {
             IntBuffer buffer = stack.mallocInt(2 * vec2.length);
             for (Vector2i value : vec2) {
                 buffer.put(value.x).put(value.y);
-            } glUniform2iv(uniform_location,buffer.flip());
+            } uniform2iv(uniform_location,buffer.flip());
         }
     }
 
@@ -366,7 +468,7 @@ public class ShaderProgram {
             IntBuffer buffer = stack.mallocInt(3 * vec3.length);
             for (Vector3i v : vec3) {
                 buffer.put(v.x).put(v.y).put(v.z);
-            } glUniform3iv(uniform_location,buffer.flip());
+            } uniform3iv(uniform_location,buffer.flip());
         }
     }
 
@@ -376,7 +478,7 @@ public class ShaderProgram {
             IntBuffer buffer = stack.mallocInt(4 * vec4.length);
             for (Vector4i v : vec4) {
                 buffer.put(v.x).put(v.y).put(v.z).put(v.w);
-            } glUniform4iv(uniform_location,buffer.flip());
+            } uniform4iv(uniform_location,buffer.flip());
         }
     }
 
@@ -386,7 +488,7 @@ public class ShaderProgram {
             FloatBuffer buffer = stack.mallocFloat(4 * mat2.length);
             for (int i = 0; i < mat2.length; i++) {
                 mat2[i].get(4*i,buffer);
-            } glUniformMatrix2fv(uniform_location,false,buffer);
+            } uniformMatrix2fv(uniform_location,false,buffer);
         }
     }
 
@@ -396,7 +498,7 @@ public class ShaderProgram {
             FloatBuffer buffer = stack.mallocFloat(9 * mat3.length);
             for (int i = 0; i < mat3.length; i++) {
                 mat3[i].get(9*i,buffer);
-            } glUniformMatrix3fv(uniform_location,false,buffer);
+            } uniformMatrix3fv(uniform_location,false,buffer);
         }
     }
 
@@ -406,13 +508,13 @@ public class ShaderProgram {
             FloatBuffer buffer = stack.mallocFloat(16 * mat4.length);
             for (int i = 0; i < mat4.length; i++) {
                 mat4[i].get(16*i,buffer);
-            } glUniformMatrix4fv(uniform_location,false,buffer);
+            } uniformMatrix4fv(uniform_location,false,buffer);
         }
     }
 
     public static void setUniformU(String name, int u) {
         int uniform_location = getUniformLocation(name);
-        glUniform1ui(uniform_location,u);
+        uniform1ui(uniform_location,u);
     }
 
     public static void setUniformU(String name, int u0, int u1) {
@@ -420,7 +522,7 @@ public class ShaderProgram {
         try (MemoryStack stack = MemoryStack.stackPush()){
             IntBuffer buffer = stack.mallocInt(2);
             buffer.put(u0).put(u1).flip();
-            glUniform2uiv(uniform_location,buffer);
+            uniform2uiv(uniform_location,buffer);
         }
     }
 
@@ -429,7 +531,7 @@ public class ShaderProgram {
         try (MemoryStack stack = MemoryStack.stackPush()){
             IntBuffer buffer = stack.mallocInt(3);
             buffer.put(u0).put(u1).put(u2).flip();
-            glUniform3uiv(uniform_location,buffer);
+            uniform3uiv(uniform_location,buffer);
         }
     }
 
@@ -438,7 +540,7 @@ public class ShaderProgram {
         try (MemoryStack stack = MemoryStack.stackPush()){
             IntBuffer buffer = stack.mallocInt(4);
             buffer.put(u0).put(u1).put(u2).put(u3).flip();
-            glUniform4uiv(uniform_location,buffer);
+            uniform4uiv(uniform_location,buffer);
         }
     }
 
@@ -452,13 +554,13 @@ public class ShaderProgram {
             IntBuffer buffer = stack.mallocInt(count);
             for (int i = 0; i < count; i++) {
                 buffer.put(array[i + offset]);
-            } glUniform1uiv(uniform_location,buffer.flip());
+            } uniform1uiv(uniform_location,buffer.flip());
         }
     }
 
     public static void setUniformU(String name, IntBuffer buffer) {
         int uniform_location = getUniformLocation(name);
-        glUniform1uiv(uniform_location,buffer);
+        uniform1uiv(uniform_location,buffer);
     }
 
     public static void setUniformU(String name, Vector2i vec2) {
@@ -479,7 +581,7 @@ public class ShaderProgram {
             IntBuffer buffer = stack.mallocInt(2 * vec2.length);
             for (Vector2i value : vec2) {
                 buffer.put(value.x).put(value.y);
-            } glUniform2uiv(uniform_location,buffer.flip());
+            } uniform2uiv(uniform_location,buffer.flip());
         }
     }
 
@@ -489,7 +591,7 @@ public class ShaderProgram {
             IntBuffer buffer = stack.mallocInt(3 * vec3.length);
             for (Vector3i v : vec3) {
                 buffer.put(v.x).put(v.y).put(v.z);
-            } glUniform3uiv(uniform_location,buffer.flip());
+            } uniform3uiv(uniform_location,buffer.flip());
         }
     }
 
@@ -499,37 +601,189 @@ public class ShaderProgram {
             IntBuffer buffer = stack.mallocInt(4 * vec4.length);
             for (Vector4i v : vec4) {
                 buffer.put(v.x).put(v.y).put(v.z).put(v.w);
-            } glUniform4uiv(uniform_location,buffer.flip());
+            } uniform4uiv(uniform_location,buffer.flip());
         }
     }
 
+    // Program uniforms (glProgramUniform, direct state access). Set uniforms of this program without using it.
+    // For render-prep code updating programs before the draws are submitted. Same uniform cache as setUniform.
+    // These look up the uniform by name. Uniform handles set the same way without the lookup
+
+    public void set(String name, int i) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,i)) glProgramUniform1i(handle,location,i);
+    }
+
+    public void set(String name, int i0, int i1) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,i0,i1)) glProgramUniform2i(handle,location,i0,i1);
+    }
+
+    public void set(String name, int i0, int i1, int i2) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,i0,i1,i2)) glProgramUniform3i(handle,location,i0,i1,i2);
+    }
+
+    public void set(String name, int i0, int i1, int i2, int i3) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,i0,i1,i2,i3)) glProgramUniform4i(handle,location,i0,i1,i2,i3);
+    }
+
+    public void set(String name, int[] array, int offset, int count) {
+        int location = uniformLocation(name);
+        IntBuffer buffer = Uniform.intScratch(count).put(0,array,offset,count);
+        if (uniform_cache.update(location,buffer)) glProgramUniform1iv(handle,location,buffer);
+    }
+
+    public void set(String name, float f) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,f)) glProgramUniform1f(handle,location,f);
+    }
+
+    public void set(String name, float f0, float f1) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,f0,f1)) glProgramUniform2f(handle,location,f0,f1);
+    }
+
+    public void set(String name, float f0, float f1, float f2) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,f0,f1,f2)) glProgramUniform3f(handle,location,f0,f1,f2);
+    }
+
+    public void set(String name, float f0, float f1, float f2, float f3) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,f0,f1,f2,f3)) glProgramUniform4f(handle,location,f0,f1,f2,f3);
+    }
+
+    public void set(String name, float[] array, int offset, int count) {
+        int location = uniformLocation(name);
+        FloatBuffer buffer = Uniform.floatScratch(count).put(0,array,offset,count);
+        if (uniform_cache.update(location,buffer)) glProgramUniform1fv(handle,location,buffer);
+    }
+
+    public void set(String name, Vector2f vec2) { set(name,vec2.x,vec2.y); }
+    public void set(String name, Vector3f vec3) { set(name,vec3.x,vec3.y,vec3.z); }
+    public void set(String name, Vector4f vec4) { set(name,vec4.x,vec4.y,vec4.z,vec4.w); }
+    public void set(String name, Vector2i vec2) { set(name,vec2.x,vec2.y); }
+    public void set(String name, Vector3i vec3) { set(name,vec3.x,vec3.y,vec3.z); }
+    public void set(String name, Vector4i vec4) { set(name,vec4.x,vec4.y,vec4.z,vec4.w); }
+
+    public void set(String name, Matrix2f mat2) {
+        int location = uniformLocation(name);
+        FloatBuffer buffer = mat2.get(Uniform.floatScratch(4));
+        if (uniform_cache.update(location,buffer)) glProgramUniformMatrix2fv(handle,location,false,buffer);
+    }
+
+    public void set(String name, Matrix3f mat3) {
+        int location = uniformLocation(name);
+        FloatBuffer buffer = mat3.get(Uniform.floatScratch(9));
+        if (uniform_cache.update(location,buffer)) glProgramUniformMatrix3fv(handle,location,false,buffer);
+    }
+
+    public void set(String name, Matrix4f mat4) {
+        int location = uniformLocation(name);
+        FloatBuffer buffer = mat4.get(Uniform.floatScratch(16));
+        if (uniform_cache.update(location,buffer)) glProgramUniformMatrix4fv(handle,location,false,buffer);
+    }
+
+    public void set(String name, Vector4f[] vec4) {
+        int location = uniformLocation(name);
+        FloatBuffer buffer = Uniform.floatScratch(4 * vec4.length);
+        for (int i = 0; i < vec4.length; i++) {
+            vec4[i].get(4 * i,buffer);
+        } if (uniform_cache.update(location,buffer)) glProgramUniform4fv(handle,location,buffer);
+    }
+
+    public void set(String name, Matrix4f[] mat4) {
+        int location = uniformLocation(name);
+        FloatBuffer buffer = Uniform.floatScratch(16 * mat4.length);
+        for (int i = 0; i < mat4.length; i++) {
+            mat4[i].get(16 * i,buffer);
+        } if (uniform_cache.update(location,buffer)) glProgramUniformMatrix4fv(handle,location,false,buffer);
+    }
+
+    public void setU(String name, int u) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,u)) glProgramUniform1ui(handle,location,u);
+    }
+
+    public void setU(String name, int u0, int u1) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,u0,u1)) glProgramUniform2ui(handle,location,u0,u1);
+    }
+
+    public void setU(String name, int u0, int u1, int u2) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,u0,u1,u2)) glProgramUniform3ui(handle,location,u0,u1,u2);
+    }
+
+    public void setU(String name, int u0, int u1, int u2, int u3) {
+        int location = uniformLocation(name);
+        if (uniform_cache.update(location,u0,u1,u2,u3)) glProgramUniform4ui(handle,location,u0,u1,u2,u3);
+    }
+
+    // glUniform* of the current program, skipped if the uniform cache has the value
+
+    private static UniformCache cache() { return programs_by_handle[GLState.program()].uniform_cache; }
+
+    private static void uniform1i(int location, int i) { if (cache().update(location,i)) glUniform1i(location,i); }
+    private static void uniform1ui(int location, int u) { if (cache().update(location,u)) glUniform1ui(location,u); }
+    private static void uniform1f(int location, float f) { if (cache().update(location,f)) glUniform1f(location,f); }
+    private static void uniform1iv(int location, IntBuffer v) { if (cache().update(location,v)) glUniform1iv(location,v); }
+    private static void uniform2iv(int location, IntBuffer v) { if (cache().update(location,v)) glUniform2iv(location,v); }
+    private static void uniform3iv(int location, IntBuffer v) { if (cache().update(location,v)) glUniform3iv(location,v); }
+    private static void uniform4iv(int location, IntBuffer v) { if (cache().update(location,v)) glUniform4iv(location,v); }
+    private static void uniform1uiv(int location, IntBuffer v) { if (cache().update(location,v)) glUniform1uiv(location,v); }
+    private static void uniform2uiv(int location, IntBuffer v) { if (cache().update(location,v)) glUniform2uiv(location,v); }
+    private static void uniform3uiv(int location, IntBuffer v) { if (cache().update(location,v)) glUniform3uiv(location,v); }
+    private static void uniform4uiv(int location, IntBuffer v) { if (cache().update(location,v)) glUniform4uiv(location,v); }
+    private static void uniform1fv(int location, FloatBuffer v) { if (cache().update(location,v)) glUniform1fv(location,v); }
+    private static void uniform2fv(int location, FloatBuffer v) { if (cache().update(location,v)) glUniform2fv(location,v); }
+    private static void uniform3fv(int location, FloatBuffer v) { if (cache().update(location,v)) glUniform3fv(location,v); }
+    private static void uniform4fv(int location, FloatBuffer v) { if (cache().update(location,v)) glUniform4fv(location,v); }
+    private static void uniformMatrix2fv(int location, boolean transpose, FloatBuffer v) { if (cache().update(location,v)) glUniformMatrix2fv(location,transpose,v); }
+    private static void uniformMatrix3fv(int location, boolean transpose, FloatBuffer v) { if (cache().update(location,v)) glUniformMatrix3fv(location,transpose,v); }
+    private static void uniformMatrix4fv(int location, boolean transpose, FloatBuffer v) { if (cache().update(location,v)) glUniformMatrix4fv(location,transpose,v); }
+
     private static int getUniformLocation(String name) {
+        ShaderProgram current_program = currentProgram();
         if (current_program == null) throw new RuntimeException("shader program no program bound");
-        Integer uniform_location = current_program.uniforms.get(name);
-        if (uniform_location == null) {
-            String message = "shader program [" + current_program.name +"] no such uniform: \"" + name + "\"";
+        return current_program.uniformLocation(name);
+    }
+
+    /** Resolve a uniform location by name. (Uniform handles resolve once, the setUniform methods on every call) */
+    int uniformLocation(String name) {
+        int uniform_location = program_interface.uniformLocation(name);
+        if (uniform_location < 0) {
+            String message = "shader program [" + this.name +"] no such uniform: \"" + name + "\"";
             throw new RuntimeException(message);
         } return uniform_location;
     }
 
-    private static Map<String,Integer> createUniformLocationMap(int program_handle) {
-        try (MemoryStack stack = MemoryStack.stackPush()){
-            IntBuffer num_uniform_buffer = stack.mallocInt(1);
-            glGetProgramInterfaceiv(program_handle,GL_UNIFORM, GL_ACTIVE_RESOURCES, num_uniform_buffer);
-            int num_uniforms = num_uniform_buffer.get(0);
-            Map<String,Integer> uniform_location_map = new HashMap<>();
-            for (int uniform = 0; uniform < num_uniforms; uniform++) {
-                String name = glGetProgramResourceName(program_handle,GL_UNIFORM,uniform);
-                int uniform_location = glGetUniformLocation(program_handle,name);
-                if (uniform_location >= 0) {
-                    // String[] split = name.split("\\[[\\d]+?\\]");
-                    String[] split = name.split("\\[\\d+?]");
-                    if (split.length > 0) {
-                        String uniform_name = split[0];
-                        uniform_location_map.putIfAbsent(uniform_name,uniform_location);
-                    }
-                }
-            } return uniform_location_map;
+    private void initializeLinked() {
+        this.program_interface = new ProgramInterface(handle);
+        try { bindBlocks(BlockBindings.UNIFORM);
+            bindBlocks(BlockBindings.STORAGE);
+        } catch (RuntimeException e) {
+            glDeleteProgram(handle);
+            throw e;
+        } this.uniform_cache = new UniformCache(handle,program_interface); // off-heap, allocated once nothing can fail
+        if (handle >= programs_by_handle.length) {
+            programs_by_handle = Arrays.copyOf(programs_by_handle,java.lang.Math.max(handle + 1,programs_by_handle.length * 2));
+        } if (programs_by_handle[handle] == null) programs_by_handle[handle] = this;
+    }
+
+    /** Bind the active blocks (uniform or storage) to the binding points of their names */
+    private void bindBlocks(BlockBindings bindings) {
+        String[] block_names = program_interface.blockNames(bindings.interface_type);
+        int[] block_bindings = program_interface.blockBindings(bindings.interface_type);
+        for (int block = 0; block < block_names.length; block++) {
+            if (block_bindings[block] > 0) {
+                bindings.reserve(block_names[block],block_bindings[block]);
+            } else {
+                block_bindings[block] = bindings.binding(block_names[block]);
+                bindings.bindProgramBlock(handle,block,block_bindings[block]);
+            }
         }
     }
 }
@@ -0,0 +1,99 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Resources;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.glGetInteger;
+import static org.lwjgl.opengl.GL30.GL_MAJOR_VERSION;
+import static org.lwjgl.opengl.GL30.GL_MINOR_VERSION;
+import static org.lwjgl.opengl.GL32.GL_CONTEXT_CORE_PROFILE_BIT;
+import static org.lwjgl.opengl.GL32.GL_CONTEXT_PROFILE_MASK;
+
+/**
+ * Shader source with #include resolved, specialized with the context version and #defines
+ */
+public final class ShaderSource {
+
+    private static final String INCLUDE = "#include";
+    private static final String VERSION = "#version";
+
+    private final String resource;
+    private final String body;
+    private final List<String> files;
+
+    private ShaderSource(String resource, String body, List<String> files) {
+        this.resource = resource;
+        this.body = body;
+        this.files = files;
+    }
+
+    /** @throws IOException unable to read a file, malformed or circular #include */
+    public static ShaderSource load(String resource) throws IOException {
+        List<String> files = new ArrayList<>();
+        StringBuilder builder = new StringBuilder(1024);
+        include(resource,builder,files,new ArrayList<>());
+        return new ShaderSource(resource,builder.toString(),List.copyOf(files));
+    }
+
+    /**
+     * @param flags the define names, bit i of mask defines flags[i]
+     * @return source ready to compile
+     */
+    public String specialize(String[] flags, int mask) {
+        StringBuilder builder = new StringBuilder(body.length() + 128);
+        builder.append(versionString());
+        for (int i = 0; i < flags.length; i++) {
+            if ((mask & (1 << i)) != 0) builder.append("#define ").append(flags[i]).append('\n');
+        } return builder.append("#line 1 0\n").append(body).toString();
+    }
+
+    /** @return source with the version line, no defines */
+    public String specialize() { return specialize(new String[0],0); }
+
+    public String resource() { return resource; }
+
+    /** @return the resource and included files, by #line source string number */
+    public List<String> files() { return files; }
+
+    private static void include(String resource, StringBuilder builder, List<String> files, List<String> stack) throws IOException {
+        if (stack.contains(resource)) throw new IOException("circular #include of \"" + resource + "\" from \"" + stack.getLast() + "\"");
+        if (files.contains(resource)) return;
+        int file_index = files.size();
+        files.add(resource);
+        stack.add(resource);
+        List<String> lines = Resources.asLines(resource);
+        if (file_index > 0) builder.append("#line 1 ").append(file_index).append('\n');
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            String trimmed = line.strip();
+            if (trimmed.startsWith(VERSION)) {
+                builder.append('\n'); // keep the line count
+            } else if (trimmed.startsWith(INCLUDE)) {
+                include(includePath(resource,trimmed),builder,files,stack);
+                builder.append("#line ").append(i + 2).append(' ').append(file_index).append('\n');
+            } else builder.append(line).append('\n');
+        } stack.removeLast();
+    }
+
+    /** @return path of the included file, relative to the directory of the including resource */
+    private static String includePath(String resource, String directive) throws IOException {
+        int begin = directive.indexOf('"');
+        int end = directive.lastIndexOf('"');
+        if (begin < 0 || end <= begin + 1) throw new IOException("malformed " + directive + " in \"" + resource + "\"");
+        String path = directive.substring(begin + 1,end);
+        int dir_end = resource.lastIndexOf('/');
+        return dir_end < 0 ? path : resource.substring(0,dir_end + 1) + path;
+    }
+
+    private static String versionString() {
+        GLInfo info = Engine.get().glInfo();
+        if (info != null) return info.shaderVersionString();
+        // no engine (tools, benchmarks)
+        int version = glGetInteger(GL_MAJOR_VERSION) * 100 + glGetInteger(GL_MINOR_VERSION) * 10;
+        boolean core = (glGetInteger(GL_CONTEXT_PROFILE_MASK) & GL_CONTEXT_CORE_PROFILE_BIT) != 0;
+        return "#version " + version + (core ? " core\n" : "\n");
+    }
+}
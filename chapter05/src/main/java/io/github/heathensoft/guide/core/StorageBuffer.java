@@ -0,0 +1,91 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+import org.tinylog.Logger;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL44.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * A shader storage buffer (std430) bound to the binding point of its block name
+ */
+public final class StorageBuffer implements Disposable {
+
+    private final String block_name;
+    private final BlockWriter writer;
+    private final long staging;
+    private final int buffer;
+    private final int binding;
+    private final int size;
+    private boolean writing;
+
+    /**
+     * @param block_name shader storage block name as declared in the shaders
+     * @param size bytes
+     * @throws Exception size exceeds GL_MAX_SHADER_STORAGE_BLOCK_SIZE
+     */
+    public StorageBuffer(String block_name, int size) throws Exception {
+        GLInfo info = Engine.get().glInfo();
+        int max_block_size = info != null ? info.max_shader_storage_block_size : glGetInteger(GL_MAX_SHADER_STORAGE_BLOCK_SIZE);
+        if (size <= 0 || size > max_block_size) {
+            throw new Exception("storage block \"" + block_name + "\": size " + size + " (max " + max_block_size + ")");
+        } this.block_name = block_name;
+        this.size = size;
+        this.binding = BlockBindings.STORAGE.binding(block_name);
+        this.writer = new BlockWriter(BlockWriter.Layout.STD430);
+        this.staging = nmemCalloc(1,size);
+        this.buffer = glGenBuffers();
+        GLState.bindBuffer(GL_SHADER_STORAGE_BUFFER,buffer);
+        nglBufferStorage(GL_SHADER_STORAGE_BUFFER,size,staging,GL_DYNAMIC_STORAGE_BIT);
+        Logger.debug("storage buffer \"{}\": {} bytes, binding {}",block_name,size,binding);
+    }
+
+    /** @return writer at the start of the staging copy (std430) */
+    public BlockWriter begin() {
+        if (writing) throw new IllegalStateException("storage buffer \"" + block_name + "\": begin without end");
+        writing = true;
+        return writer.reset(staging,size);
+    }
+
+    /** Upload the bytes written since begin */
+    public void end() {
+        if (!writing) throw new IllegalStateException("storage buffer \"" + block_name + "\": end without begin");
+        writing = false;
+        int bytes = writer.offset();
+        if (bytes > 0) {
+            GLState.bindBuffer(GL_SHADER_STORAGE_BUFFER,buffer);
+            nglBufferSubData(GL_SHADER_STORAGE_BUFFER,0,bytes,staging);
+        }
+    }
+
+    /** Bind the whole buffer to the block's binding point */
+    public void bind() {
+        GLState.bindBufferBase(GL_SHADER_STORAGE_BUFFER,binding,buffer);
+    }
+
+    /** Bind a range to the block's binding point. (offset: multiple of offsetAlignment) */
+    public void bind(int offset, int size) {
+        GLState.bindBufferRange(GL_SHADER_STORAGE_BUFFER,binding,buffer,offset,size);
+    }
+
+    /** Read back the buffer from offset into dst (position to limit). Waits for the gpu */
+    public void read(int offset, ByteBuffer dst) {
+        GLState.bindBuffer(GL_SHADER_STORAGE_BUFFER,buffer);
+        glGetBufferSubData(GL_SHADER_STORAGE_BUFFER,offset,dst);
+    }
+
+    /** @return GL_SHADER_STORAGE_BUFFER_OFFSET_ALIGNMENT */
+    public static int offsetAlignment() { return BlockBindings.STORAGE.offsetAlignment(); }
+
+    public String blockName() { return block_name; }
+    public int binding() { return binding; }
+    public int size() { return size; }
+    public int bufferHandle() { return buffer; }
+
+    public void dispose() {
+        GLState.deleteBuffer(buffer);
+        nmemFree(staging);
+    }
+}
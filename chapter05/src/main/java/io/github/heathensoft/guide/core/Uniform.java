@@ -0,0 +1,181 @@
+package io.github.heathensoft.guide.core;
+
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.joml.Vector2i;
+import org.joml.Vector3f;
+import org.joml.Vector3i;
+import org.joml.Vector4f;
+import org.joml.Vector4i;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL41.*;
+
+/**
+ * Typed uniform handles, resolved once by name
+ */
+public abstract class Uniform {
+
+    private static final int SCRATCH_FLOATS = 16 * 64;
+    private static FloatBuffer float_scratch = BufferUtils.createFloatBuffer(SCRATCH_FLOATS);
+    private static IntBuffer int_scratch = BufferUtils.createIntBuffer(SCRATCH_FLOATS);
+
+    protected final ShaderProgram program;
+    protected final String name;
+    protected final int location;
+
+    /** @throws RuntimeException the program has no active uniform by that name */
+    Uniform(ShaderProgram program, String name) {
+        this.program = program;
+        this.name = name;
+        this.location = program.uniformLocation(name);
+    }
+
+    public ShaderProgram program() { return program; }
+    public String name() { return name; }
+    public int location() { return location; }
+
+    /** @return the float scratch buffer: position 0, limit count. Grows if needed */
+    static FloatBuffer floatScratch(int count) {
+        if (float_scratch.capacity() < count) {
+            float_scratch = BufferUtils.createFloatBuffer(Math.max(count,float_scratch.capacity() * 2));
+        } return float_scratch.clear().limit(count);
+    }
+
+    /** @return the int scratch buffer: position 0, limit count. Grows if needed */
+    static IntBuffer intScratch(int count) {
+        if (int_scratch.capacity() < count) {
+            int_scratch = BufferUtils.createIntBuffer(Math.max(count,int_scratch.capacity() * 2));
+        } return int_scratch.clear().limit(count);
+    }
+
+
+    public static final class Float extends Uniform {
+        public Float(ShaderProgram program, String name) { super(program,name); }
+        public void set(float f) {
+            if (program.uniform_cache.update(location,f)) glProgramUniform1f(program.handle(),location,f);
+        }
+    }
+
+    public static final class Vec2 extends Uniform {
+        public Vec2(ShaderProgram program, String name) { super(program,name); }
+        public void set(float x, float y) {
+            if (program.uniform_cache.update(location,x,y)) glProgramUniform2f(program.handle(),location,x,y);
+        }
+        public void set(Vector2f vec2) { set(vec2.x,vec2.y); }
+    }
+
+    public static final class Vec3 extends Uniform {
+        public Vec3(ShaderProgram program, String name) { super(program,name); }
+        public void set(float x, float y, float z) {
+            if (program.uniform_cache.update(location,x,y,z)) glProgramUniform3f(program.handle(),location,x,y,z);
+        }
+        public void set(Vector3f vec3) { set(vec3.x,vec3.y,vec3.z); }
+    }
+
+    public static final class Vec4 extends Uniform {
+        public Vec4(ShaderProgram program, String name) { super(program,name); }
+        public void set(float x, float y, float z, float w) {
+            if (program.uniform_cache.update(location,x,y,z,w)) glProgramUniform4f(program.handle(),location,x,y,z,w);
+        }
+        public void set(Vector4f vec4) { set(vec4.x,vec4.y,vec4.z,vec4.w); }
+    }
+
+    /** int, bool and sampler uniforms */
+    public static final class Int extends Uniform {
+        public Int(ShaderProgram program, String name) { super(program,name); }
+        public void set(int i) {
+            if (program.uniform_cache.update(location,i)) glProgramUniform1i(program.handle(),location,i);
+        }
+    }
+
+    public static final class IVec2 extends Uniform {
+        public IVec2(ShaderProgram program, String name) { super(program,name); }
+        public void set(int x, int y) {
+            if (program.uniform_cache.update(location,x,y)) glProgramUniform2i(program.handle(),location,x,y);
+        }
+        public void set(Vector2i vec2) { set(vec2.x,vec2.y); }
+    }
+
+    public static final class IVec3 extends Uniform {
+        public IVec3(ShaderProgram program, String name) { super(program,name); }
+        public void set(int x, int y, int z) {
+            if (program.uniform_cache.update(location,x,y,z)) glProgramUniform3i(program.handle(),location,x,y,z);
+        }
+        public void set(Vector3i vec3) { set(vec3.x,vec3.y,vec3.z); }
+    }
+
+    public static final class IVec4 extends Uniform {
+        public IVec4(ShaderProgram program, String name) { super(program,name); }
+        public void set(int x, int y, int z, int w) {
+            if (program.uniform_cache.update(location,x,y,z,w)) glProgramUniform4i(program.handle(),location,x,y,z,w);
+        }
+        public void set(Vector4i vec4) { set(vec4.x,vec4.y,vec4.z,vec4.w); }
+    }
+
+    public static final class Mat3 extends Uniform {
+        public Mat3(ShaderProgram program, String name) { super(program,name); }
+        public void set(Matrix3f mat3) {
+            FloatBuffer buffer = mat3.get(floatScratch(9));
+            if (program.uniform_cache.update(location,buffer)) glProgramUniformMatrix3fv(program.handle(),location,false,buffer);
+        }
+    }
+
+    public static final class Mat4 extends Uniform {
+        public Mat4(ShaderProgram program, String name) { super(program,name); }
+        public void set(Matrix4f mat4) {
+            FloatBuffer buffer = mat4.get(floatScratch(16));
+            if (program.uniform_cache.update(location,buffer)) glProgramUniformMatrix4fv(program.handle(),location,false,buffer);
+        }
+    }
+
+    /** float[] uniform. Sets the first count elements */
+    public static final class FloatArray extends Uniform {
+        public FloatArray(ShaderProgram program, String name) { super(program,name); }
+        public void set(float[] array) { set(array,0,array.length); }
+        public void set(float[] array, int offset, int count) {
+            FloatBuffer buffer = floatScratch(count);
+            buffer.put(0,array,offset,count);
+            if (program.uniform_cache.update(location,buffer)) glProgramUniform1fv(program.handle(),location,buffer);
+        }
+    }
+
+    /** int[] uniform (or sampler array). Sets the first count elements */
+    public static final class IntArray extends Uniform {
+        public IntArray(ShaderProgram program, String name) { super(program,name); }
+        public void set(int[] array) { set(array,0,array.length); }
+        public void set(int[] array, int offset, int count) {
+            IntBuffer buffer = intScratch(count);
+            buffer.put(0,array,offset,count);
+            if (program.uniform_cache.update(location,buffer)) glProgramUniform1iv(program.handle(),location,buffer);
+        }
+    }
+
+    /** vec4[] uniform. Sets the first count elements */
+    public static final class Vec4Array extends Uniform {
+        public Vec4Array(ShaderProgram program, String name) { super(program,name); }
+        public void set(Vector4f[] array) { set(array,0,array.length); }
+        public void set(Vector4f[] array, int offset, int count) {
+            FloatBuffer buffer = floatScratch(4 * count);
+            for (int i = 0; i < count; i++) {
+                array[offset + i].get(4 * i,buffer);
+            } if (program.uniform_cache.update(location,buffer)) glProgramUniform4fv(program.handle(),location,buffer);
+        }
+    }
+
+    /** mat4[] uniform. Sets the first count elements */
+    public static final class Mat4Array extends Uniform {
+        public Mat4Array(ShaderProgram program, String name) { super(program,name); }
+        public void set(Matrix4f[] array) { set(array,0,array.length); }
+        public void set(Matrix4f[] array, int offset, int count) {
+            FloatBuffer buffer = floatScratch(16 * count);
+            for (int i = 0; i < count; i++) {
+                array[offset + i].get(16 * i,buffer);
+            } if (program.uniform_cache.update(location,buffer)) glProgramUniformMatrix4fv(program.handle(),location,false,buffer);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+import org.tinylog.Logger;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL44.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+
+/**
+ * Per-frame uniform block in a persistently mapped, fenced ring of regions (std140)
+ */
+public final class UniformBufferRing implements Disposable {
+
+    public static final int REGIONS = 3;
+    private static final long WAIT_TIMEOUT_NANOS = 1_000_000_000L;
+
+    private final String block_name;
+    private final BlockWriter writer;
+    private final long[] fences;
+    private final long address;
+    private final int buffer;
+    private final int binding;
+    private final int block_size;
+    private final int region_size;
+    private int region = -1;
+    private boolean writing;
+
+    /**
+     * @param block_name uniform block name as declared in the shaders
+     * @param block_size bytes (GL_BUFFER_DATA_SIZE of the block)
+     * @throws Exception block too large, or the buffer could not be mapped
+     */
+    public UniformBufferRing(String block_name, int block_size) throws Exception {
+        GLInfo info = Engine.get().glInfo();
+        int max_block_size = info != null ? info.max_uniform_block_size : glGetInteger(GL_MAX_UNIFORM_BLOCK_SIZE);
+        if (block_size <= 0 || block_size > max_block_size) {
+            throw new Exception("uniform block \"" + block_name + "\": size " + block_size + " (max " + max_block_size + ")");
+        } int alignment = BlockBindings.UNIFORM.offsetAlignment();
+        this.block_name = block_name;
+        this.block_size = block_size;
+        this.region_size = (block_size + alignment - 1) / alignment * alignment;
+        this.binding = BlockBindings.UNIFORM.binding(block_name);
+        this.writer = new BlockWriter(BlockWriter.Layout.STD140);
+        this.fences = new long[REGIONS];
+        int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+        this.buffer = glGenBuffers();
+        GLState.bindBuffer(GL_UNIFORM_BUFFER,buffer);
+        glBufferStorage(GL_UNIFORM_BUFFER,(long) region_size * REGIONS,flags);
+        ByteBuffer mapped = glMapBufferRange(GL_UNIFORM_BUFFER,0,(long) region_size * REGIONS,flags);
+        if (mapped == null) {
+            GLState.deleteBuffer(buffer);
+            throw new Exception("uniform block \"" + block_name + "\": unable to map the uniform buffer");
+        } this.address = memAddress(mapped);
+        Logger.debug("uniform buffer ring \"{}\": {} x {} bytes, binding {}",block_name,REGIONS,region_size,binding);
+    }
+
+    /**
+     * Fence the region of the previous frame, then wait until the gpu is done with the next region.
+     * @return writer at the start of the region (std140)
+     */
+    public BlockWriter begin() {
+        if (writing) throw new IllegalStateException("uniform buffer ring \"" + block_name + "\": begin without end");
+        if (region >= 0) fences[region] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE,0);
+        region = (region + 1) % REGIONS;
+        long fence = fences[region];
+        if (fence != 0L) {
+            int status = glClientWaitSync(fence,GL_SYNC_FLUSH_COMMANDS_BIT,WAIT_TIMEOUT_NANOS);
+            if (status == GL_WAIT_FAILED || status == GL_TIMEOUT_EXPIRED) {
+                Logger.warn("uniform buffer ring \"{}\": fence wait failed",block_name);
+            } glDeleteSync(fence);
+            fences[region] = 0L;
+        } writing = true;
+        return writer.reset(address + (long) region * region_size,block_size);
+    }
+
+    /** Bind the region written since begin to the block's binding point */
+    public void end() {
+        if (!writing) throw new IllegalStateException("uniform buffer ring \"" + block_name + "\": end without begin");
+        writing = false;
+        GLState.bindBufferRange(GL_UNIFORM_BUFFER,binding,buffer,(long) region * region_size,block_size);
+    }
+
+    public String blockName() { return block_name; }
+    public int binding() { return binding; }
+    public int blockSize() { return block_size; }
+    public int bufferHandle() { return buffer; }
+
+    public void dispose() {
+        for (int i = 0; i < REGIONS; i++) {
+            if (fences[i] != 0L) {
+                glDeleteSync(fences[i]);
+                fences[i] = 0L;
+            }
+        } GLState.bindBuffer(GL_UNIFORM_BUFFER,buffer);
+        glUnmapBuffer(GL_UNIFORM_BUFFER);
+        GLState.deleteBuffer(buffer);
+    }
+}
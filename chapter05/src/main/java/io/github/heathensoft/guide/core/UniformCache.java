@@ -0,0 +1,241 @@
+package io.github.heathensoft.guide.core;
+
+import io.github.heathensoft.guide.utils.Disposable;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL46C.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Shadow copy of a program's uniform values, skips redundant glUniform calls
+ */
+final class UniformCache implements Disposable {
+
+    private static final int KIND_FLOAT = 0;
+    private static final int KIND_INT = 1;
+    private static final int KIND_UINT = 2;
+    private static final int KIND_DOUBLE = 3;
+
+    private static long hits_total;
+    private static long misses_total;
+
+    private final long address;
+    private final int[] offsets; // by location: shadow byte offset, or -1
+    private final int[] limits;  // by location: end of the uniform (shadow byte offset)
+    private long hits;
+    private long misses;
+
+    UniformCache(int program, ProgramInterface program_interface) {
+        int num_uniforms = program_interface.uniformCount();
+        int[] offsets = new int[0];
+        int[] limits = new int[0];
+        int size = 0;
+        long address = NULL;
+        for (int uniform = 0; uniform < num_uniforms; uniform++) {
+            if (!isTracked(program_interface,uniform)) continue;
+            for (int element = 0; element < program_interface.uniformArraySize(uniform); element++) {
+                int element_location = program_interface.uniformElementLocation(uniform,element);
+                if (element_location >= offsets.length) {
+                    int length = Math.max(element_location + 1,offsets.length * 2);
+                    int previous = offsets.length;
+                    offsets = Arrays.copyOf(offsets,length);
+                    limits = Arrays.copyOf(limits,length);
+                    Arrays.fill(offsets,previous,length,-1);
+                }
+            } size += elementBytes(program_interface.uniformType(uniform)) * program_interface.uniformArraySize(uniform);
+        } if (size > 0) {
+            address = nmemCalloc(1,size);
+            int offset = 0;
+            for (int uniform = 0; uniform < num_uniforms; uniform++) {
+                if (!isTracked(program_interface,uniform)) continue;
+                int type = program_interface.uniformType(uniform);
+                int element_bytes = elementBytes(type);
+                int limit = offset + element_bytes * program_interface.uniformArraySize(uniform);
+                for (int element = 0; element < program_interface.uniformArraySize(uniform); element++) {
+                    int element_location = program_interface.uniformElementLocation(uniform,element);
+                    if (element_location >= 0) {
+                        offsets[element_location] = offset;
+                        limits[element_location] = limit;
+                        readValue(program,element_location,type,address + offset);
+                    } offset += element_bytes;
+                }
+            }
+        }
+        this.address = address;
+        this.offsets = offsets;
+        this.limits = limits;
+    }
+
+    /** @return true if the value changed: issue the glUniform call */
+    boolean update(int location, int x) {
+        long a = slot(location,4);
+        if (a == NULL) return miss();
+        if (memGetInt(a) == x) return hit();
+        memPutInt(a,x);
+        return miss();
+    }
+
+    boolean update(int location, int x, int y) {
+        long a = slot(location,8);
+        if (a == NULL) return miss();
+        if (memGetInt(a) == x && memGetInt(a + 4) == y) return hit();
+        memPutInt(a,x);
+        memPutInt(a + 4,y);
+        return miss();
+    }
+
+    boolean update(int location, int x, int y, int z) {
+        long a = slot(location,12);
+        if (a == NULL) return miss();
+        if (memGetInt(a) == x && memGetInt(a + 4) == y && memGetInt(a + 8) == z) return hit();
+        memPutInt(a,x);
+        memPutInt(a + 4,y);
+        memPutInt(a + 8,z);
+        return miss();
+    }
+
+    boolean update(int location, int x, int y, int z, int w) {
+        long a = slot(location,16);
+        if (a == NULL) return miss();
+        if (memGetInt(a) == x && memGetInt(a + 4) == y && memGetInt(a + 8) == z && memGetInt(a + 12) == w) return hit();
+        memPutInt(a,x);
+        memPutInt(a + 4,y);
+        memPutInt(a + 8,z);
+        memPutInt(a + 12,w);
+        return miss();
+    }
+
+    boolean update(int location, float x) {
+        return update(location,Float.floatToRawIntBits(x));
+    }
+
+    boolean update(int location, float x, float y) {
+        return update(location,Float.floatToRawIntBits(x),Float.floatToRawIntBits(y));
+    }
+
+    boolean update(int location, float x, float y, float z) {
+        return update(location,Float.floatToRawIntBits(x),Float.floatToRawIntBits(y),Float.floatToRawIntBits(z));
+    }
+
+    boolean update(int location, float x, float y, float z, float w) {
+        return update(location,Float.floatToRawIntBits(x),Float.floatToRawIntBits(y),
+                Float.floatToRawIntBits(z),Float.floatToRawIntBits(w));
+    }
+
+    /** buffer: position to limit */
+    boolean update(int location, FloatBuffer buffer) {
+        return update(location,memAddress(buffer),buffer.remaining() << 2);
+    }
+
+    /** buffer: position to limit */
+    boolean update(int location, IntBuffer buffer) {
+        return update(location,memAddress(buffer),buffer.remaining() << 2);
+    }
+
+    private boolean update(int location, long src, int bytes) {
+        long a = slot(location,bytes);
+        if (a == NULL) return miss();
+        int i = 0;
+        for (; i + 8 <= bytes; i += 8) {
+            if (memGetLong(src + i) != memGetLong(a + i)) break;
+        } if (i + 8 > bytes) {
+            for (; i < bytes; i += 4) {
+                if (memGetInt(src + i) != memGetInt(a + i)) break;
+            } if (i >= bytes) return hit();
+        } memCopy(src + i,a + i,bytes - i);
+        return miss();
+    }
+
+    long hits() { return hits; }
+    long misses() { return misses; }
+    static long hitsTotal() { return hits_total; }
+    static long missesTotal() { return misses_total; }
+
+    public void dispose() { nmemFree(address); }
+
+    /** @return shadow address of the location, if bytes fit within the uniform. Or NULL */
+    private long slot(int location, int bytes) {
+        if (location < 0 || location >= offsets.length) return NULL;
+        int offset = offsets[location];
+        if (offset < 0 || offset + bytes > limits[location]) return NULL;
+        return address + offset;
+    }
+
+    private boolean hit() {
+        hits++;
+        hits_total++;
+        return false;
+    }
+
+    private boolean miss() {
+        misses++;
+        misses_total++;
+        return true;
+    }
+
+    /** default block uniforms of a known type */
+    private static boolean isTracked(ProgramInterface program_interface, int uniform) {
+        return program_interface.uniformLocation(uniform) >= 0 && elementBytes(program_interface.uniformType(uniform)) != 0;
+    }
+
+    private static void readValue(int program, int location, int type, long dst) {
+        switch (kind(type)) {
+            case KIND_FLOAT -> nglGetUniformfv(program,location,dst);
+            case KIND_INT -> nglGetUniformiv(program,location,dst);
+            case KIND_UINT -> nglGetUniformuiv(program,location,dst);
+            case KIND_DOUBLE -> nglGetUniformdv(program,location,dst);
+        }
+    }
+
+    private static int kind(int type) {
+        return switch (type) {
+            case GL_FLOAT, GL_FLOAT_VEC2, GL_FLOAT_VEC3, GL_FLOAT_VEC4,
+                 GL_FLOAT_MAT2, GL_FLOAT_MAT3, GL_FLOAT_MAT4,
+                 GL_FLOAT_MAT2x3, GL_FLOAT_MAT2x4, GL_FLOAT_MAT3x2,
+                 GL_FLOAT_MAT3x4, GL_FLOAT_MAT4x2, GL_FLOAT_MAT4x3 -> KIND_FLOAT;
+            case GL_UNSIGNED_INT, GL_UNSIGNED_INT_VEC2, GL_UNSIGNED_INT_VEC3, GL_UNSIGNED_INT_VEC4 -> KIND_UINT;
+            case GL_DOUBLE, GL_DOUBLE_VEC2, GL_DOUBLE_VEC3, GL_DOUBLE_VEC4,
+                 GL_DOUBLE_MAT2, GL_DOUBLE_MAT3, GL_DOUBLE_MAT4,
+                 GL_DOUBLE_MAT2x3, GL_DOUBLE_MAT2x4, GL_DOUBLE_MAT3x2,
+                 GL_DOUBLE_MAT3x4, GL_DOUBLE_MAT4x2, GL_DOUBLE_MAT4x3 -> KIND_DOUBLE;
+            default -> KIND_INT; // int, bool, samplers and images
+        };
+    }
+
+    /** @return bytes of one element of the uniform type, as written by glUniform* (0 if not tracked) */
+    static int elementBytes(int type) {
+        int components = switch (type) {
+            case GL_FLOAT, GL_INT, GL_UNSIGNED_INT, GL_BOOL -> 1;
+            case GL_FLOAT_VEC2, GL_INT_VEC2, GL_UNSIGNED_INT_VEC2, GL_BOOL_VEC2 -> 2;
+            case GL_FLOAT_VEC3, GL_INT_VEC3, GL_UNSIGNED_INT_VEC3, GL_BOOL_VEC3 -> 3;
+            case GL_FLOAT_VEC4, GL_INT_VEC4, GL_UNSIGNED_INT_VEC4, GL_BOOL_VEC4, GL_FLOAT_MAT2 -> 4;
+            case GL_FLOAT_MAT2x3, GL_FLOAT_MAT3x2 -> 6;
+            case GL_FLOAT_MAT2x4, GL_FLOAT_MAT4x2 -> 8;
+            case GL_FLOAT_MAT3 -> 9;
+            case GL_FLOAT_MAT3x4, GL_FLOAT_MAT4x3 -> 12;
+            case GL_FLOAT_MAT4 -> 16;
+            case GL_DOUBLE -> 2;
+            case GL_DOUBLE_VEC2 -> 4;
+            case GL_DOUBLE_VEC3 -> 6;
+            case GL_DOUBLE_VEC4, GL_DOUBLE_MAT2 -> 8;
+            case GL_DOUBLE_MAT2x3, GL_DOUBLE_MAT3x2 -> 12;
+            case GL_DOUBLE_MAT2x4, GL_DOUBLE_MAT4x2 -> 16;
+            case GL_DOUBLE_MAT3 -> 18;
+            case GL_DOUBLE_MAT3x4, GL_DOUBLE_MAT4x3 -> 24;
+            case GL_DOUBLE_MAT4 -> 32;
+            default -> isOpaque(type) ? 1 : 0;
+        }; return components * 4;
+    }
+
+    private static boolean isOpaque(int type) {
+        return (type >= GL_SAMPLER_1D && type <= GL_SAMPLER_2D_RECT_SHADOW)
+                || (type >= GL_SAMPLER_1D_ARRAY && type <= GL_SAMPLER_CUBE_SHADOW)
+                || (type >= GL_INT_SAMPLER_1D && type <= GL_UNSIGNED_INT_SAMPLER_BUFFER)
+                || (type >= GL_SAMPLER_2D_MULTISAMPLE && type <= GL_UNSIGNED_INT_SAMPLER_2D_MULTISAMPLE_ARRAY)
+                || (type >= GL_SAMPLER_CUBE_MAP_ARRAY && type <= GL_UNSIGNED_INT_SAMPLER_CUBE_MAP_ARRAY)
+                || (type >= GL_IMAGE_1D && type <= GL_UNSIGNED_INT_IMAGE_2D_MULTISAMPLE_ARRAY);
+    }
+}
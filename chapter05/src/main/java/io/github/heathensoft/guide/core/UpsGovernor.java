@@ -0,0 +1,144 @@
+package io.github.heathensoft.guide.core;
+
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Caps catch-up updates per frame and optionally adapts the target UPS to the update load
+ */
+public final class UpsGovernor {
+
+    /** Called on the update thread */
+    public interface Listener {
+        /** The governor changed the target UPS */
+        default void targetUpsChanged(int previous_ups, int new_ups) { }
+        /** Simulation time was dropped, either by the catch-up cap or the max frame time */
+        default void simulationTimeDropped(double seconds) { }
+    }
+
+    private static final double LOAD_HIGH = 0.75;       // share of real time spent updating
+    private static final double LOAD_LOW = 0.35;        // LOAD_LOW * RAISE_FACTOR stays below LOAD_HIGH
+    private static final double EVALUATION_INTERVAL = 0.5; // seconds
+    private static final int LOWER_AFTER = 2;           // evaluations of high load in a row
+    private static final int RAISE_AFTER = 6;           // evaluations of low load in a row
+    private static final double LOWER_FACTOR = 0.75;
+    private static final double RAISE_FACTOR = 1.25;
+
+    private final List<Listener> listeners = new ArrayList<>();
+    private final GLFWWindow window;
+    private final int max_updates_per_frame;
+    private boolean enabled;
+    private int preferred_ups;          // set by the game
+    private int governed_ups;           // last target UPS set by the governor
+    private long update_nanos;          // update time since last evaluation
+    private int update_count;           // updates since last evaluation
+    private double evaluation_time;     // seconds since last evaluation
+    private double load;                // share of real time spent updating (last evaluation)
+    private double average_update_ms;   // average update time (last evaluation)
+    private int high_load_count;
+    private int low_load_count;
+
+    UpsGovernor(BootConfiguration config, GLFWWindow window) {
+        this.window = window;
+        this.enabled = config.adaptive_ups;
+        this.max_updates_per_frame = config.max_updates_per_frame <= 0 ?
+                Integer.MAX_VALUE : config.max_updates_per_frame;
+    }
+
+    public void addListener(Listener listener) {
+        if (listener != null && !listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) { listeners.remove(listener); }
+
+    /** Enable or disable adapting the target UPS. Disabling restores the preferred UPS */
+    public void setEnabled(boolean enable) {
+        if (enabled && !enable && governed_ups != 0) {
+            setTargetUps(preferred_ups);
+        } enabled = enable;
+        high_load_count = 0;
+        low_load_count = 0;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** @return max updates per frame before the remaining simulation time is dropped */
+    public int maxUpdatesPerFrame() { return max_updates_per_frame; }
+
+    /** @return share of real time spent updating, measured over the last half second */
+    public double updateLoad() { return load; }
+
+    /** @return average time per update (ms), measured over the last half second */
+    public double averageUpdateMillis() { return average_update_ms; }
+
+    /** @return the UPS the governor will return to when the load allows it */
+    public int preferredUps() { return preferred_ups; }
+
+    void recordUpdate(long nanos) {
+        update_nanos += nanos;
+        update_count++;
+    }
+
+    void timeDropped(double seconds) {
+        if (seconds > 0) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).simulationTimeDropped(seconds);
+            }
+        }
+    }
+
+    /**
+     * Called once per frame after updating.
+     * @param frame_time the frame time (seconds)
+     */
+    void endFrame(double frame_time) {
+        int target_ups = window.targetUps();
+        if (target_ups != governed_ups) {
+            // Changed by the game (or first frame)
+            preferred_ups = target_ups;
+            governed_ups = target_ups;
+        } evaluation_time += frame_time;
+        if (evaluation_time >= EVALUATION_INTERVAL) {
+            load = (update_nanos / 1_000_000_000.0) / evaluation_time;
+            average_update_ms = update_count == 0 ? 0 : (update_nanos / 1_000_000.0) / update_count;
+            update_nanos = 0;
+            update_count = 0;
+            evaluation_time = 0;
+            if (enabled) evaluate(target_ups);
+        }
+    }
+
+    private void evaluate(int target_ups) {
+        if (load > LOAD_HIGH) {
+            low_load_count = 0;
+            if (++high_load_count >= LOWER_AFTER && target_ups > GLFWWindow.UPS_MIN) {
+                high_load_count = 0;
+                setTargetUps((int) (target_ups * LOWER_FACTOR));
+            }
+        } else if (load < LOAD_LOW) {
+            high_load_count = 0;
+            if (++low_load_count >= RAISE_AFTER && target_ups < preferred_ups) {
+                low_load_count = 0;
+                setTargetUps(Math.min((int) Math.ceil(target_ups * RAISE_FACTOR), preferred_ups));
+            }
+        } else {
+            high_load_count = 0;
+            low_load_count = 0;
+        }
+    }
+
+    private void setTargetUps(int ups) {
+        int previous_ups = window.targetUps();
+        window.setTargetUPS(ups);
+        governed_ups = window.targetUps();
+        if (governed_ups != previous_ups) {
+            Logger.debug("ups governor: target ups {} -> {} (update load: {}%)",
+                    previous_ups, governed_ups, Math.round(load * 100));
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).targetUpsChanged(previous_ups, governed_ups);
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package io.github.heathensoft.guide.game;
 import io.github.heathensoft.guide.core.*;
 import io.github.heathensoft.guide.utils.Disposable;
 
+import java.util.concurrent.CompletableFuture;
+
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
@@ -19,8 +21,9 @@ public class Game implements IGame {
     public static final int game_res_w = 1200;
     public static final int game_res_h = 800;
     private RendererTest renderer;
-    private int escape_key_prev = GLFW_RELEASE; // ESCAPE key state from the previous frame
-    private int f1_key_prev = GLFW_RELEASE;     // F1 key state from the previous frame
+    private CompletableFuture<RendererTest> renderer_loading;
+    private int exit_action;
+    private int fullscreen_action;
 
     public void configure(BootConfiguration boot_config, String[] args) {
         boot_config.window_title = "lwjgl-guide";
@@ -33,7 +36,11 @@ public class Game implements IGame {
     }
 
     public void start(Resolution resolution) throws Exception {
-        renderer = new RendererTest();
+        InputBindings bindings = Engine.get().bindings();
+        exit_action = bindings.action("exit",InputBindings.key(GLFW_KEY_ESCAPE),
+                InputBindings.gamepadButton(GLFW_GAMEPAD_BUTTON_BACK));
+        fullscreen_action = bindings.action("toggle_fullscreen",InputBindings.key(GLFW_KEY_F1));
+        renderer_loading = RendererTest.loadAsync(Engine.get().assets());
     }
 
     public void resize(Resolution resolution) { /* */ }
@@ -42,26 +49,31 @@ public class Game implements IGame {
         //Engine.Time time = Engine.get().time();
         //System.out.println("FPS: " + time.framesPerSecond() + " - UPS: " + time.updatesPerSecond());
         GLFWWindow window = Engine.get().window();
-        int escape_key_state = glfwGetKey(window.handle(),GLFW_KEY_ESCAPE);
-        int f1_key_state = glfwGetKey(window.handle(),GLFW_KEY_F1);
-        if (escape_key_state == GLFW_PRESS && escape_key_prev == GLFW_RELEASE) {
+        InputBindings bindings = Engine.get().bindings();
+        if (bindings.isPressed(exit_action)) {
             Engine.get().exitMainLoop();
-        } else if (f1_key_state == GLFW_PRESS && f1_key_prev == GLFW_RELEASE) {
+        } else if (bindings.isPressed(fullscreen_action)) {
             if (window.isWindowedMode()) window.fullScreen();
             else window.windowedMode(game_res_w,game_res_h);
-        } escape_key_prev = escape_key_state;
-        f1_key_prev = f1_key_state;
+        }
     }
 
     public void render() {
         Engine.get().window().useWindowViewport();
         glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
         glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-        renderer.draw();
+        if (renderer == null) { // still loading
+            if (!renderer_loading.isDone()) return;
+            renderer = renderer_loading.join();
+        } renderer.draw();
     }
 
     public void exit() {
-        Disposable.dispose(renderer);
+        if (renderer == null && renderer_loading != null) { // loaded, but never rendered
+            if (renderer_loading.isDone() && !renderer_loading.isCompletedExceptionally()) {
+                renderer = renderer_loading.join();
+            }
+        } Disposable.dispose(renderer);
         ShaderProgram.deleteAllPrograms();
     }
 }
@@ -1,17 +1,19 @@
 package io.github.heathensoft.guide.game;
 
+import io.github.heathensoft.guide.core.AssetLoader;
 import io.github.heathensoft.guide.core.Engine;
-import io.github.heathensoft.guide.core.Shader;
+import io.github.heathensoft.guide.core.GLState;
+import io.github.heathensoft.guide.core.ProgramBatch;
+import io.github.heathensoft.guide.core.ShaderPermutations;
 import io.github.heathensoft.guide.core.ShaderProgram;
+import io.github.heathensoft.guide.core.ShaderSource;
+import io.github.heathensoft.guide.core.Uniform;
 import io.github.heathensoft.guide.utils.Disposable;
-import io.github.heathensoft.guide.utils.Resources;
 
-import static org.lwjgl.opengl.GL11.GL_NONE;
-import static org.lwjgl.opengl.GL15.glDeleteBuffers;
+import java.util.concurrent.CompletableFuture;
+
 import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL20.glDeleteShader;
 import static org.lwjgl.opengl.GL30.*;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
 
 /**
  * Frederik Dahl 12/5/2024
@@ -21,20 +23,50 @@ public class RendererTest implements Disposable {
     private final int vertex_attrib_array;
     private final int vertex_buffer_object;
     private final ShaderProgram shader_program;
-
+    private final Uniform.Float u_time;
+
+    /** the vertices are in pixels of this resolution */
+    private static final float RESOLUTION_W = 1200;
+    private static final float RESOLUTION_H = 800;
+    private static final String[] SHADER_FLAGS = { "ANIMATE_COLOR" };
+    private static ShaderPermutations permutations; // one per program source, caches the compiled permutations
+
+
+    /**
+     * Read the shader sources on a virtual thread, compile the program without blocking the frame (ProgramBatch),
+     * then create the renderer on the opengl thread
+     * @param loader the engine asset loader
+     * @return future completed on the opengl thread
+     */
+    public static CompletableFuture<RendererTest> loadAsync(AssetLoader loader) {
+        return loader.load(() -> new ShaderSource[] {
+                ShaderSource.load("render-test.vert"),
+                ShaderSource.load("render-test.frag")
+        }, sources -> {
+            ShaderPermutations permutations = permutations(sources[0],sources[1]);
+            ProgramBatch batch = new ProgramBatch();
+            CompletableFuture<ShaderProgram> program = permutations.compile(batch,permutations.mask("ANIMATE_COLOR"));
+            loader.compile(batch);
+            return program;
+        }).thenCompose(program -> program).thenApply(RendererTest::new);
+    }
 
     public RendererTest() throws Exception {
-
         // Loading shader source code files from the project "resources folder"
-        String vert_shader_source = Resources.asString("render-test.vert");
-        String frag_shader_source = Resources.asString("render-test.frag");
+        this(ShaderSource.load("render-test.vert"),ShaderSource.load("render-test.frag"));
+    }
+
+    public RendererTest(ShaderSource vert_shader_source, ShaderSource frag_shader_source) throws Exception {
 
-        // Uploading the source code strings to the gpu then compile the code
-        // Each shader is compiled separately.
-        Shader vert_shader = new Shader(vert_shader_source, Shader.Type.VERT_SHADER);
-        Shader frag_shader = new Shader(frag_shader_source, Shader.Type.FRAG_SHADER);
-        shader_program = new ShaderProgram(vert_shader,frag_shader);
-        shader_program.detachShaders(true);
+        // The preprocessed sources (includes resolved) are specialized with a #define per flag.
+        // The ANIMATE_COLOR permutation is compiled on first use, then reused from the permutations cache
+        this(animatedProgram(vert_shader_source,frag_shader_source));
+    }
+
+    public RendererTest(ShaderProgram shader_program) {
+        this.shader_program = shader_program;
+        u_time = new Uniform.Float(shader_program,"u_time");
+        new Uniform.Vec2(shader_program,"u_resolution").set(RESOLUTION_W,RESOLUTION_H);
 
         // ***********************************************************************************************
 
@@ -57,28 +89,36 @@ public class RendererTest implements Disposable {
         };
         vertex_attrib_array = glGenVertexArrays();
         vertex_buffer_object = glGenBuffers();
-        glBindVertexArray(vertex_attrib_array);
-        glBindBuffer(GL_ARRAY_BUFFER,vertex_buffer_object);
+        GLState.bindVertexArray(vertex_attrib_array);
+        GLState.bindBuffer(GL_ARRAY_BUFFER,vertex_buffer_object);
         glBufferData(GL_ARRAY_BUFFER,vertices,GL_STATIC_DRAW);
         glVertexAttribPointer(0,3,GL_FLOAT,false,6 * Float.BYTES,0);
         glVertexAttribPointer(1,3,GL_FLOAT,false,6 * Float.BYTES,3 * Float.BYTES);
         glEnableVertexAttribArray(0);
         glEnableVertexAttribArray(1);
-        glBindVertexArray(0);
+    }
+
+    private static ShaderProgram animatedProgram(ShaderSource vert_source, ShaderSource frag_source) throws Exception {
+        ShaderPermutations permutations = permutations(vert_source,frag_source);
+        return permutations.get(permutations.mask("ANIMATE_COLOR"));
+    }
+
+    /** opengl thread: the permutations of the render-test program, created with the first sources loaded */
+    private static ShaderPermutations permutations(ShaderSource vert_source, ShaderSource frag_source) {
+        if (permutations == null) permutations = new ShaderPermutations("render-test",SHADER_FLAGS,vert_source,frag_source);
+        return permutations;
     }
 
     public void draw() {
         ShaderProgram.useProgram(shader_program);
-        ShaderProgram.setUniform("u_time",
-                (float)Engine.get().time().runTimeSeconds());
-        glBindVertexArray(vertex_attrib_array);
+        u_time.set((float)Engine.get().time().runTimeSeconds());
+        GLState.bindVertexArray(vertex_attrib_array);
         glDrawArrays(GL_TRIANGLES,0,12);
-        glBindVertexArray(0);
     }
 
     public void dispose() {
-        glDeleteVertexArrays(vertex_attrib_array);
-        glDeleteBuffers(vertex_buffer_object);
+        GLState.deleteVertexArray(vertex_attrib_array);
+        GLState.deleteBuffer(vertex_buffer_object);
     }
 
 
@@ -1,15 +1,12 @@
 package io.github.heathensoft.guide.utils;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -29,19 +26,13 @@ public class ExternalFile {
     /** read file to direct buffer */
     public ByteBuffer readToBuffer() throws IOException {
         if (!isFile()) throw new IOException("not a readable file: " + path.toString());
-        try (InputStream inputStream = new FileInputStream(path.toFile())) {
-            byte[] arr = new byte[(int)Files.size(path) + 128];
-            int idx = 0;
-            int data = inputStream.read();
-            while (data != -1) {
-                if (idx == arr.length) {
-                    int len = (int)(arr.length * 1.5f);
-                    arr = Arrays.copyOf(arr,len);
-                } arr[idx++] = (byte)data;
-                data = inputStream.read();
-            } ByteBuffer buffer = ByteBuffer.allocateDirect(idx);
-            buffer.put(arr,0,idx);
-            return buffer.flip();
+        try (SeekableByteChannel byteChannel = Files.newByteChannel(path, StandardOpenOption.READ)) {
+            long size = byteChannel.size();
+            if (size > Integer.MAX_VALUE - 8) throw new IOException("file too large: " + path.toString());
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while (buffer.hasRemaining()) {
+                if (byteChannel.read(buffer) == -1) break;
+            } return buffer.flip();
         }
     }
 
@@ -28,6 +28,7 @@ public class Resources {
 
     /** read file to direct buffer (big endian) */
     public static ByteBuffer readToBuffer(String resource, int size) throws IOException {
+        long load_start = System.nanoTime();
         ByteBuffer result;
         try (InputStream is = resourceStream(resource)){
             try (ReadableByteChannel byteChannel = Channels.newChannel(is)){
@@ -44,7 +45,8 @@ public class Resources {
                     }
                 }
             }
-        } return MemoryUtil.memSlice(result.flip());
+        } TraceWriter.complete("io","read resource",resource,load_start,System.nanoTime());
+        return MemoryUtil.memSlice(result.flip());
     }
 
     public static List<String> asLines(String resource) throws IOException {
@@ -52,12 +54,14 @@ public class Resources {
     }
 
     public static List<String> asLines(String resource, Charset charset) throws IOException {
+        long load_start = System.nanoTime();
         List<String> result;
         try (InputStream input_stream = resourceStream(resource)) {
             InputStreamReader reader = new InputStreamReader(input_stream,charset);
             Stream<String> stream = new BufferedReader(reader).lines();
             result = stream.collect(Collectors.toList());
-        } return result;
+        } TraceWriter.complete("io","read resource",resource,load_start,System.nanoTime());
+        return result;
     }
 
     public static String asString(String resource) throws IOException {
@@ -65,13 +69,15 @@ public class Resources {
     }
 
     public static String asString(String resource, Charset charset) throws IOException {
+        long load_start = System.nanoTime();
         StringBuilder builder = new StringBuilder();
         try (InputStream input_stream = resourceStream(resource)){
             InputStreamReader reader = new InputStreamReader(input_stream,charset);
             BufferedReader bufferedReader = new BufferedReader(reader); String line;
             while ((line = bufferedReader.readLine()) != null)
                 builder.append(line).append(System.lineSeparator());
-        } return builder.toString();
+        } TraceWriter.complete("io","read resource",resource,load_start,System.nanoTime());
+        return builder.toString();
     }
 
     private static InputStream resourceStream(String resource) throws IOException {
@@ -0,0 +1,224 @@
+package io.github.heathensoft.guide.utils;
+
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.lang.System.nanoTime;
+
+/**
+ * Streams timed events to a Chrome trace-event JSON file
+ */
+public final class TraceWriter {
+
+    private static final int CAPACITY = 1 << 16; // events, power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final long IDLE_PARK_NANOS = 2_000_000;
+
+    // ring buffer (bounded multi-producer queue, a sequence number per slot)
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong head = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final long[] start_times = new long[CAPACITY];
+    private static final long[] end_times = new long[CAPACITY];
+    private static final String[] categories = new String[CAPACITY];
+    private static final String[] names = new String[CAPACITY];
+    private static final String[] details = new String[CAPACITY];
+    private static final Thread[] threads = new Thread[CAPACITY];
+
+    private static volatile boolean enabled;
+    private static volatile Thread writer_thread;
+    private static long tail;           // writer thread
+    private static long origin_nanos;   // trace time zero
+    private static boolean shutdown_hook_added;
+
+    private TraceWriter() { /* */ }
+
+    /**
+     * Start tracing to the file (overwrites it). Does nothing if a trace is already running
+     * @throws IOException if the file can't be created
+     */
+    public static synchronized void start(String path) throws IOException {
+        if (writer_thread != null) return;
+        Writer writer = Files.newBufferedWriter(Path.of(path), StandardCharsets.UTF_8);
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+        for (int i = 0; i < CAPACITY; i++) sequences.set(i,i);
+        head.set(0);
+        tail = 0;
+        dropped.set(0);
+        origin_nanos = nanoTime();
+        Thread thread = new Thread(() -> writeLoop(writer),"trace-writer");
+        thread.setDaemon(true);
+        writer_thread = thread;
+        enabled = true;
+        thread.start();
+        if (!shutdown_hook_added) {
+            Runtime.getRuntime().addShutdownHook(new Thread(TraceWriter::stop,"trace-writer-shutdown"));
+            shutdown_hook_added = true;
+        } Logger.info("tracing to: {}", path);
+    }
+
+    /** Stop tracing. Writes the remaining events and closes the file */
+    public static synchronized void stop() {
+        Thread thread = writer_thread;
+        if (thread != null) {
+            enabled = false;
+            LockSupport.unpark(thread);
+            try { thread.join();
+            } catch (InterruptedException e) {
+                Logger.error(e);
+            } writer_thread = null;
+            long dropped_events = dropped.get();
+            if (dropped_events > 0) Logger.warn("trace: dropped {} events", dropped_events);
+        }
+    }
+
+    public static boolean isEnabled() { return enabled; }
+
+    /** Record an event that started at start_nanos and ended now */
+    public static void complete(String category, String name, long start_nanos) {
+        if (enabled) record(category,name,null,start_nanos,nanoTime());
+    }
+
+    /** Record an event from start_nanos to end_nanos (System.nanoTime) */
+    public static void complete(String category, String name, long start_nanos, long end_nanos) {
+        if (enabled) record(category,name,null,start_nanos,end_nanos);
+    }
+
+    /**
+     * Record an event from start_nanos to end_nanos (System.nanoTime)
+     * @param detail shown as an argument of the event (resource name etc.) can be null
+     */
+    public static void complete(String category, String name, String detail, long start_nanos, long end_nanos) {
+        if (enabled) record(category,name,detail,start_nanos,end_nanos);
+    }
+
+    /** Record an instant event (a marker) */
+    public static void instant(String category, String name) {
+        if (enabled) {
+            long now = nanoTime();
+            record(category,name,null,now,now - 1); // end before start marks an instant
+        }
+    }
+
+    private static void record(String category, String name, String detail, long start_nanos, long end_nanos) {
+        long position = head.get();
+        while (true) {
+            int slot = (int) (position & MASK);
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (head.compareAndSet(position,position + 1)) break;
+                position = head.get();
+            } else if (sequence < position) { // full
+                dropped.incrementAndGet();
+                return;
+            } else position = head.get();
+        } int slot = (int) (position & MASK);
+        start_times[slot] = start_nanos;
+        end_times[slot] = end_nanos;
+        categories[slot] = category;
+        names[slot] = name;
+        details[slot] = detail;
+        threads[slot] = Thread.currentThread();
+        sequences.set(slot,position + 1); // publish
+    }
+
+    private static void writeLoop(Writer writer) {
+        Set<Long> named_threads = new HashSet<>();
+        StringBuilder builder = new StringBuilder(256);
+        boolean first = true;
+        try {
+            while (true) {
+                boolean running = enabled;
+                int slot = (int) (tail & MASK);
+                if (sequences.get(slot) == tail + 1) {
+                    Thread thread = threads[slot];
+                    long tid = thread.threadId();
+                    builder.setLength(0);
+                    if (!first) builder.append(",\n");
+                    first = false;
+                    if (named_threads.add(tid)) {
+                        String thread_name = thread.getName();
+                        if (thread_name.isEmpty()) thread_name = (thread.isVirtual() ? "virtual-" : "thread-") + tid;
+                        builder.append("{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":1,\"tid\":").append(tid);
+                        builder.append(",\"args\":{\"name\":");
+                        appendString(builder,thread_name);
+                        builder.append("}},\n");
+                    } appendEvent(builder,slot,tid);
+                    writer.append(builder);
+                    threads[slot] = null;
+                    names[slot] = details[slot] = categories[slot] = null;
+                    sequences.set(slot,tail + CAPACITY); // free the slot
+                    tail++;
+                } else if (running) {
+                    writer.flush();
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                } else break; // stopped and drained
+            } writer.write("\n]}\n");
+        } catch (IOException e) {
+            Logger.error(e,"trace: writing failed, tracing stopped");
+            enabled = false;
+        } finally {
+            try { writer.close();
+            } catch (IOException e) {
+                Logger.error(e);
+            }
+        }
+    }
+
+    private static void appendEvent(StringBuilder builder, int slot, long tid) {
+        long start = start_times[slot];
+        long end = end_times[slot];
+        builder.append("{\"ph\":\"").append(end < start ? 'i' : 'X').append("\",\"cat\":");
+        appendString(builder,categories[slot] == null ? "" : categories[slot]);
+        builder.append(",\"name\":");
+        appendString(builder,names[slot] == null ? "" : names[slot]);
+        builder.append(",\"pid\":1,\"tid\":").append(tid).append(",\"ts\":");
+        appendMicros(builder,start - origin_nanos);
+        if (end < start) builder.append(",\"s\":\"t\"");
+        else { builder.append(",\"dur\":");
+            appendMicros(builder,end - start);
+        } if (details[slot] != null) {
+            builder.append(",\"args\":{\"detail\":");
+            appendString(builder,details[slot]);
+            builder.append('}');
+        } builder.append('}');
+    }
+
+    /** nanoseconds as microseconds with three decimals */
+    private static void appendMicros(StringBuilder builder, long nanos) {
+        if (nanos < 0) { builder.append('-'); nanos = -nanos; }
+        long fraction = nanos % 1000;
+        builder.append(nanos / 1000).append('.');
+        if (fraction < 100) builder.append('0');
+        if (fraction < 10) builder.append('0');
+        builder.append(fraction);
+    }
+
+    private static void appendString(StringBuilder builder, String string) {
+        builder.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) builder.append(String.format("\\u%04x",(int) c));
+                    else builder.append(c);
+                }
+            }
+        } builder.append('"');
+    }
+}
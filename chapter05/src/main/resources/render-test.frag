@@ -1,4 +1,3 @@
-#version 440
 
 layout (location=0) out vec4 f_color;
 
@@ -6,7 +5,11 @@ in vec3 color;
 uniform float u_time;
 
 void main() {
+#ifdef ANIMATE_COLOR
     float r = (sin(u_time) + 1.0) / 2.0;
+#else
+    float r = color.r;
+#endif
     float g = color.g;
     float b = color.b;
     float a = 1.0;
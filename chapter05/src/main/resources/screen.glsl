@@ -0,0 +1,6 @@
+// screen space (pixels, origin bottom left) to clip space
+vec4 screenToClip(vec3 position, vec2 resolution) {
+    vec2 position_xy = position.xy / resolution;
+    position_xy = position_xy * 2.0 - 1.0;
+    return vec4(position_xy, position.z, 1.0);
+}
@@ -1,10 +1,10 @@
 rootProject.name = "lwjgl-guide"
 
-include("test")
 include("chapter00")
 include("chapter01")
 include("chapter02")
 include("chapter03")
 include("chapter04")
 include("chapter05")
+include("benchmarks")
 